@@ -0,0 +1,64 @@
+package io.github.liaob.game2;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Times {@link BoardRenderer#drawFrame} for every board size on the device
+ * the test runs on, moving every few frames so animations are included. Run
+ * it on low-end hardware before relying on the large boards; the results go
+ * to logcat under {@link #TAG}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BoardRenderTimingTest {
+
+    private static final String TAG = "BoardRenderTiming";
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int FRAMES = 240;
+    private static final int FRAMES_PER_MOVE = 10;
+    private static final long FRAME_NANOS = 16666667;
+
+    @Test
+    public void drawFrame_everyBoardSize() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        Rect dirty = new Rect();
+        for (int size = PackedBoard.MIN_SIZE; size <= PackedBoard.MAX_SIZE; size++) {
+            Game game = new Game(true, new SplitMix64(size));
+            game.newGame(size);
+            BoardRenderer renderer = new BoardRenderer(context, size, size);
+            renderer.setSize(WIDTH, HEIGHT);
+            GameSnapshot frame = new GameSnapshot(size, size);
+
+            long frameTime = 0;
+            long total = 0;
+            long worst = 0;
+            for (int i = 0; i < FRAMES; i++) {
+                if (i % FRAMES_PER_MOVE == 0) {
+                    if (!game.isActive()) {
+                        game.newGame();
+                    }
+                    game.move(i / FRAMES_PER_MOVE % 4);
+                    frame.copyFrom(game);
+                }
+                long start = System.nanoTime();
+                renderer.drawFrame(canvas, frame, frameTime, dirty);
+                long elapsed = System.nanoTime() - start;
+                total += elapsed;
+                worst = Math.max(worst, elapsed);
+                frameTime += FRAME_NANOS;
+            }
+            Log.i(TAG, size + "x" + size + ": " + total / FRAMES / 1000
+                    + " us/frame on average, worst " + worst / 1000 + " us");
+        }
+    }
+}
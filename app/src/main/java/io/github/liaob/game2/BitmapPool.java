@@ -0,0 +1,139 @@
+package io.github.liaob.game2;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bitmaps given back by renderers that were replaced, kept for the next
+ * renderer to draw into instead of allocating its own. A rotation or layout
+ * change then reuses the buffers of the layout before it rather than
+ * allocating several screen-sized bitmaps while the old ones still wait for
+ * the garbage collector.
+ *
+ * A bitmap is reused as is when its size and config match; from KitKat on,
+ * any bitmap with a large enough buffer is reconfigured to fit, which covers
+ * the width and height swapping on rotation. The pool keeps at most
+ * {@link #MAX_BYTES_FRACTION} of the heap and recycles the oldest bitmaps
+ * past that.
+ *
+ * Thread-safe: bitmaps are given back on the thread that draws and taken on
+ * the one that loads renderers.
+ */
+public class BitmapPool {
+
+    // Of the heap the app may grow to
+    static final int MAX_BYTES_FRACTION = 8;
+
+    private static final BitmapPool instance =
+            new BitmapPool(Runtime.getRuntime().maxMemory() / MAX_BYTES_FRACTION);
+
+    private final long maxBytes;
+    // Oldest first
+    private final List<Bitmap> bitmaps = new ArrayList<Bitmap>();
+    private long bytes = 0;
+
+    BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The pool every renderer shares.
+     */
+    public static BitmapPool getInstance() {
+        return instance;
+    }
+
+    /**
+     * A mutable width x height bitmap, cleared to transparent, from the pool
+     * if one fits and newly allocated otherwise.
+     */
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        int needed = width * height * bytesPerPixel(config);
+        int best = -1;
+        boolean exact = false;
+        for (int i = 0; i < bitmaps.size(); i++) {
+            Bitmap bitmap = bitmaps.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height
+                    && bitmap.getConfig() == config) {
+                best = i;
+                exact = true;
+                break;
+            }
+            // The smallest that is large enough, so big buffers stay for big
+            // bitmaps
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                    && sizeOf(bitmap) >= needed
+                    && (best == -1 || sizeOf(bitmap) < sizeOf(bitmaps.get(best)))) {
+                best = i;
+            }
+        }
+        if (best == -1) {
+            return Bitmap.createBitmap(width, height, config);
+        }
+        Bitmap bitmap = bitmaps.remove(best);
+        bytes -= sizeOf(bitmap);
+        if (!exact) {
+            reconfigure(bitmap, width, height, config);
+        }
+        bitmap.eraseColor(0);
+        return bitmap;
+    }
+
+    // Only reached from KitKat on, where a buffer can take another size
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static void reconfigure(Bitmap bitmap, int width, int height,
+                                    Bitmap.Config config) {
+        bitmap.reconfigure(width, height, config);
+    }
+
+    /**
+     * Gives bitmap back for reuse. It must not be drawn or drawn into
+     * afterwards. Null is ignored.
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+        bitmaps.add(bitmap);
+        bytes += sizeOf(bitmap);
+        while (bytes > maxBytes) {
+            Bitmap oldest = bitmaps.remove(0);
+            bytes -= sizeOf(oldest);
+            oldest.recycle();
+        }
+    }
+
+    /**
+     * Recycles every bitmap in the pool, for when memory is short.
+     */
+    public synchronized void clear() {
+        for (Bitmap bitmap : bitmaps) {
+            bitmap.recycle();
+        }
+        bitmaps.clear();
+        bytes = 0;
+    }
+
+    private static int sizeOf(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getByteCount();
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        switch (config) {
+            case ALPHA_8:
+                return 1;
+            case RGB_565:
+            case ARGB_4444:
+                return 2;
+            default:
+                return 4;
+        }
+    }
+}
@@ -0,0 +1,737 @@
+package io.github.liaob.game2;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+/**
+ * Lays out and draws the board from a {@link GameSnapshot}. It keeps no
+ * reference to the view or the game, so it can draw on whichever thread owns
+ * it: the UI thread in {@link GameView#onDraw(Canvas)}, or the render thread
+ * of {@link GameSurfaceView}.
+ */
+public class BoardRenderer {
+
+    Paint paint = new Paint();
+    private final int numCellTypes = 12;
+    private int numSquaresX;
+    private int numSquaresY;
+    private final Resources resources;
+
+    private int cellSize = 0;
+    private float textSize = 0;
+    private float cellTextSize = 0;
+    private int gridWidth = 0;
+    private int width;
+    private int height;
+    private int TEXT_BLACK;
+    private int TEXT_WHITE;
+    private int TEXT_PINK;
+    private int TEXT_BROWN;
+    int backgroundColor;
+    public int startingX;
+    public int startingY;
+    public int endingX;
+    public int endingY;
+    private int textPaddingSize;
+    private int iconPaddingSize;
+
+    // Assets
+    private Drawable backgroundRectangle;
+    private Drawable[] cellRectangle = new Drawable[numCellTypes];
+    private TileAtlas tiles;
+    private Drawable newGameIcon;
+    // Opaque, so half the bytes of ARGB_8888
+    private Bitmap background = null;
+    // The text over a finished game, rendered when the game ends. Only its
+    // alpha is kept; it is drawn in overlayPaint's color.
+    private Bitmap endGameOverlay = null;
+    private boolean endGameOverlayWon;
+    private final Paint overlayPaint = new Paint();
+    private final BitmapPool pool = BitmapPool.getInstance();
+
+    // Background, score and every tile that is not animating. Each frame
+    // copies it and draws only the animated tiles on top. Opaque too.
+    private Bitmap boardLayer = null;
+    private Canvas boardCanvas;
+    private boolean boardLayerStale = true;
+    private long boardLayerVersion = -1;
+    // Cells left out of boardLayer and drawn live, as an AnimationGrid mask
+    private long liveCells = 0;
+
+    // Timings of the frames drawn, when measuring; set from the UI thread
+    private volatile FrameStats frameStats;
+    private volatile LatencyTracer latencyTracer;
+    private final Rect overlayBounds = new Rect();
+    private final Rect boardBounds = new Rect();
+    // How many times faster than real time animations run
+    private int animationSpeed = 1;
+
+    // Text variables
+    private int sYAll;
+    private int titleStartYAll;
+    private int bodyStartYAll;
+    private int eYAll;
+    private int titleWidthHighScore;
+    private int titleWidthScore;
+
+    // Icon variables
+    public int sYIcons;
+    public int sXNewGame;
+    public int iconSize;
+
+    // Text values
+    private String headerText;
+    private String highScoreTitle;
+    private String scoreTitle;
+    private String instructionsText;
+    private String winText;
+    private String loseText;
+
+    long lastFPSTime = System.nanoTime();
+
+    float titleTextSize;
+    float bodyTextSize;
+    float headerTextSize;
+    float instructionsTextSize;
+    float gameOverTextSize;
+
+    boolean refreshLastTime = true;
+
+    static final float MERGING_ACCELERATION = (float) -0.5;
+    static final float INITIAL_VELOCITY = (1 - MERGING_ACCELERATION) / 4;
+
+    public BoardRenderer(Context context, int numSquaresX, int numSquaresY) {
+        this.numSquaresX = numSquaresX;
+        this.numSquaresY = numSquaresY;
+        resources = context.getResources();
+        try {
+            // Getting text values
+            headerText = resources.getString(R.string.header);
+            highScoreTitle = resources.getString(R.string.personal_best);
+            scoreTitle = resources.getString(R.string.score);
+            instructionsText = resources.getString(R.string.instructions);
+            winText = resources.getString(R.string.you_win);
+            loseText = resources.getString(R.string.game_over);
+            // Getting assets
+            backgroundRectangle = resources.getDrawable(R.drawable.background_rectangle);
+
+            cellRectangle[0] = resources.getDrawable(R.drawable.ic_2048_bg);
+            cellRectangle[1] = resources.getDrawable(R.drawable.ic_2048_black);
+            cellRectangle[2] = resources.getDrawable(R.drawable.ic_2048_gray);
+            cellRectangle[3] = resources.getDrawable(R.drawable.ic_2048_brown);
+            cellRectangle[4] = resources.getDrawable(R.drawable.ic_2048_pink);
+            cellRectangle[5] = resources.getDrawable(R.drawable.ic_2048_purple);
+            cellRectangle[6] = resources.getDrawable(R.drawable.ic_2048_blue);
+            cellRectangle[7] = resources.getDrawable(R.drawable.ic_2048_teal);
+            cellRectangle[8] = resources.getDrawable(R.drawable.ic_2048_green);
+            cellRectangle[9] = resources.getDrawable(R.drawable.ic_2048_yellow);
+            cellRectangle[10] = resources.getDrawable(R.drawable.ic_2048_orange);
+            cellRectangle[11] = resources.getDrawable(R.drawable.ic_2048_red);
+
+            newGameIcon = resources.getDrawable(R.drawable.ic_2048_new);
+
+            TEXT_PINK = resources.getColor(R.color.text_pink);
+            TEXT_WHITE = resources.getColor(R.color.text_white);
+            TEXT_BLACK = resources.getColor(R.color.text_black);
+            TEXT_BROWN = resources.getColor(R.color.text_brown);
+            backgroundColor = resources.getColor(R.color.background);
+
+            // Tiles past 2048 have no artwork of their own
+            tiles = new TileAtlas(cellRectangle,
+                    resources.getDrawable(R.drawable.cell_rectangle).mutate(),
+                    TEXT_BLACK, TEXT_WHITE);
+        } catch (Exception e) {
+            System.out.println("Error getting assets?");
+        }
+    }
+
+    /**
+     * Lays the board out for a width x height area and renders the bitmaps
+     * drawn from then on, reusing bitmaps from the {@link BitmapPool}.
+     */
+    public void setSize(int width, int height) {
+        release();
+        getLayout(width, height);
+        createBackgroundBitmap(width, height);
+        tiles.setCellSize(cellSize, cellTextSize);
+        boardLayer = pool.get(width, height, Bitmap.Config.RGB_565);
+        boardCanvas = new Canvas(boardLayer);
+        boardLayerStale = true;
+    }
+
+    /**
+     * Gives the bitmaps back to the {@link BitmapPool}, for when the
+     * renderer is replaced. Nothing is drawn again until the next setSize;
+     * the layout stays.
+     */
+    public void release() {
+        pool.put(background);
+        background = null;
+        pool.put(boardLayer);
+        boardLayer = null;
+        boardCanvas = null;
+        releaseEndGameOverlay();
+        if (tiles != null) {
+            tiles.release();
+        }
+    }
+
+    /**
+     * Switches to a board of another size, returning false if it already
+     * had that size. The caller lays the board out again afterwards.
+     */
+    public boolean setBoardSize(int numSquaresX, int numSquaresY) {
+        if (numSquaresX == this.numSquaresX && numSquaresY == this.numSquaresY) {
+            return false;
+        }
+        this.numSquaresX = numSquaresX;
+        this.numSquaresY = numSquaresY;
+        return true;
+    }
+
+    /**
+     * Records the timings of every frame drawn from now on into stats, or
+     * stops recording if it is null.
+     */
+    public void setFrameStats(FrameStats stats) {
+        frameStats = stats;
+    }
+
+    /**
+     * Reports every frame drawn from now on to tracer, or stops if it is
+     * null.
+     */
+    public void setLatencyTracer(LatencyTracer tracer) {
+        latencyTracer = tracer;
+    }
+
+    /**
+     * Runs animations speed times faster than real time, to catch up with
+     * states waiting to be drawn.
+     */
+    public void setAnimationSpeed(int speed) {
+        animationSpeed = speed;
+    }
+
+    /**
+     * Draws frame and advances its animations to frameTimeNanos. Returns
+     * whether another frame is needed, with the area it has to redraw in
+     * dirty.
+     */
+    public boolean drawFrame(Canvas canvas, GameSnapshot frame,
+                             long frameTimeNanos, Rect dirty) {
+        LatencyTracer.beginSection("BoardRenderer.drawFrame");
+        try {
+            LatencyTracer tracer = latencyTracer;
+            long start = tracer != null ? System.nanoTime() : 0;
+            boolean moreFrames;
+            FrameStats stats = frameStats;
+            if (stats == null) {
+                moreFrames = drawFrame(canvas, frame, frameTimeNanos, dirty, null);
+            } else {
+                stats.frameStarted(frameTimeNanos);
+                moreFrames = drawFrame(canvas, frame, frameTimeNanos, dirty, stats);
+                stats.frameEnded(moreFrames);
+                if (stats.isOverlayEnabled()) {
+                    stats.drawOverlay(canvas, overlayBounds, titleTextSize);
+                    if (moreFrames) {
+                        dirty.union(overlayBounds);
+                    }
+                }
+            }
+            if (tracer != null) {
+                tracer.frameDrawn(start, moreFrames);
+            }
+            return moreFrames;
+        } finally {
+            LatencyTracer.endSection();
+        }
+    }
+
+    private boolean drawFrame(Canvas canvas, GameSnapshot frame, long frameTimeNanos,
+                              Rect dirty, FrameStats stats) {
+        if (frame.version != boardLayerVersion) {
+            // A new snapshot starts its animations from this frame
+            boardLayerVersion = frame.version;
+            boardLayerStale = true;
+            lastFPSTime = frameTimeNanos;
+        }
+        long animatedCells = frame.aGrid.getAnimatedCells();
+        if (boardLayerStale || (animatedCells & ~liveCells) != 0) {
+            drawBoardLayer(frame, animatedCells);
+        } else {
+            // Tiles whose animations ended since the last frame settle into
+            // the layer
+            for (long cells = liveCells & ~animatedCells; cells != 0; cells &= cells - 1) {
+                int cell = Long.numberOfTrailingZeros(cells);
+                drawStaticCell(boardCanvas, cell % numSquaresX,
+                        cell / numSquaresX, frame.board);
+            }
+        }
+        liveCells = animatedCells;
+
+        canvas.drawBitmap(boardLayer, 0, 0, paint);
+
+        if (stats != null) {
+            long start = System.nanoTime();
+            drawCells(canvas, frame);
+            stats.cellsDrawn(System.nanoTime() - start);
+        } else {
+            drawCells(canvas, frame);
+        }
+
+        if (!frame.active) {
+            drawEndGameState(canvas, frame);
+        } else {
+            refreshLastTime = true;
+            releaseEndGameOverlay();
+        }
+
+        // Refresh the screen if there is still an animation running
+        if (frame.aGrid.isAnimationActive()) {
+            getAnimatedArea(frame.aGrid, dirty);
+            tick(frame.aGrid, frameTimeNanos, stats);
+            return true;
+            // Refresh one last time on game end.
+        } else if (!frame.active && refreshLastTime) {
+            dirty.set(0, 0, width, height);
+            refreshLastTime = false;
+            return true;
+        }
+        return false;
+    }
+
+    private void drawDrawable(Canvas canvas, Drawable draw, int startingX,
+                              int startingY, int endingX, int endingY) {
+        draw.setBounds(startingX, startingY, endingX, endingY);
+        draw.draw(canvas);
+    }
+
+    private void drawScoreText(Canvas canvas, GameSnapshot frame) {
+        paint.setTextSize(bodyTextSize);
+        paint.setTextAlign(Paint.Align.CENTER);
+
+        int bodyWidthHighScore = (int) (paint.measureText("" + frame.personalBest));
+        int bodyWidthScore = (int) (paint.measureText(frame.moves));
+
+        int textWidthHighScore = Math.max(titleWidthHighScore,
+                bodyWidthHighScore) + textPaddingSize * 2;
+        int textWidthScore = Math.max(titleWidthScore, bodyWidthScore)
+                + textPaddingSize * 2;
+
+        int textMiddleHighScore = textWidthHighScore / 2;
+        int textMiddleScore = textWidthScore / 2;
+
+        int eXHighScore = endingX;
+        int sXHighScore = eXHighScore - textWidthHighScore;
+
+        int eXScore = sXHighScore - textPaddingSize;
+        int sXScore = eXScore - textWidthScore;
+
+        // Outputting high-scores box
+        backgroundRectangle.setBounds(sXHighScore, sYAll, eXHighScore, eYAll);
+        backgroundRectangle.draw(canvas);
+        paint.setTextSize(titleTextSize);
+        paint.setColor(TEXT_BROWN);
+        canvas.drawText(highScoreTitle, sXHighScore + textMiddleHighScore,
+                titleStartYAll, paint);
+        paint.setTextSize(bodyTextSize);
+        paint.setColor(TEXT_WHITE);
+        canvas.drawText(frame.personalBest, sXHighScore
+                + textMiddleHighScore, bodyStartYAll, paint);
+
+        // Outputting scores box
+        backgroundRectangle.setBounds(sXScore, sYAll, eXScore, eYAll);
+        backgroundRectangle.draw(canvas);
+        paint.setTextSize(titleTextSize);
+        paint.setColor(TEXT_BROWN);
+        canvas.drawText(scoreTitle, sXScore + textMiddleScore, titleStartYAll,
+                paint);
+        paint.setTextSize(bodyTextSize);
+        paint.setColor(TEXT_WHITE);
+        canvas.drawText(frame.moves, sXScore + textMiddleScore,
+                bodyStartYAll, paint);
+    }
+
+    private void drawNewGameButton(Canvas canvas) {
+        drawDrawable(canvas, backgroundRectangle, sXNewGame, sYAll,
+                    sXNewGame + (int)(cellSize*0.8), eYAll);
+        drawDrawable(canvas, newGameIcon, sXNewGame + iconPaddingSize, sYAll
+                        + iconPaddingSize, sXNewGame + (int)(cellSize*0.8) - iconPaddingSize,
+                eYAll - iconPaddingSize);
+    }
+
+    private void drawHeader(Canvas canvas) {
+        // Drawing the header
+        paint.setTextSize(headerTextSize);
+        paint.setColor(TEXT_BLACK);
+        paint.setTextAlign(Paint.Align.LEFT);
+        int textShiftY = (int) (centerText() * 2);
+        int headerStartY = sYAll - textShiftY;
+        canvas.drawText(headerText, sXNewGame - cellSize - iconPaddingSize, headerStartY, paint);
+    }
+
+    public void drawInstructions(Canvas canvas) {
+        // Drawing the instructions
+        paint.setTextSize(instructionsTextSize);
+        paint.setTextAlign(Paint.Align.LEFT);
+        int textShiftY = centerText() * 5;
+        canvas.drawText(instructionsText, startingX, endingY - textShiftY
+                + textPaddingSize, paint);
+    }
+
+    private void drawBackground(Canvas canvas) {
+        drawDrawable(canvas, backgroundRectangle, startingX, startingY,
+                endingX, endingY);
+    }
+
+    private void drawBackgroundGrid(Canvas canvas) {
+        // Outputting the game grid
+        for (int xx = 0; xx < numSquaresX; xx++) {
+            for (int yy = 0; yy < numSquaresY; yy++) {
+                int sX = startingX + gridWidth + (cellSize + gridWidth) * xx;
+                int eX = sX + cellSize;
+                int sY = startingY + gridWidth + (cellSize + gridWidth) * yy;
+                int eY = sY + cellSize;
+
+                drawDrawable(canvas, cellRectangle[0], sX, sY, eX, eY);
+            }
+        }
+    }
+
+    private void drawBoardLayer(GameSnapshot frame, long animatedCells) {
+        boardCanvas.drawBitmap(background, 0, 0, paint);
+
+        drawScoreText(boardCanvas, frame);
+
+        if (!frame.active && !frame.aGrid.isAnimationActive()) {
+            drawNewGameButton(boardCanvas);
+        }
+
+        for (int xx = 0; xx < numSquaresX; xx++) {
+            for (int yy = 0; yy < numSquaresY; yy++) {
+                if ((animatedCells & 1L << (yy * numSquaresX + xx)) == 0) {
+                    drawStaticCell(boardCanvas, xx, yy, frame.board);
+                }
+            }
+        }
+        boardLayerStale = false;
+    }
+
+    private void drawStaticCell(Canvas canvas, int xx, int yy, PackedBoard board) {
+        int sX = startingX + gridWidth + (cellSize + gridWidth) * xx;
+        int eX = sX + cellSize;
+        int sY = startingY + gridWidth + (cellSize + gridWidth) * yy;
+        int eY = sY + cellSize;
+
+        // Empty cells are already part of the background
+        int index = board.getExponent(xx, yy);
+        if (index != 0) {
+            tiles.draw(canvas, index, sX, sY, eX, eY);
+        }
+    }
+
+    // The cells drawn live this frame, including the cells their tiles slide
+    // in from
+    private void getAnimatedArea(AnimationGrid aGrid, Rect dirty) {
+        if (aGrid.getAnimationCount(-1, -1) != 0) {
+            dirty.set(startingX, startingY, endingX, endingY);
+            return;
+        }
+        dirty.setEmpty();
+        for (long cells = liveCells; cells != 0; cells &= cells - 1) {
+            int cell = Long.numberOfTrailingZeros(cells);
+            int xx = cell % numSquaresX;
+            int yy = cell / numSquaresX;
+            unionCell(dirty, xx, yy);
+            for (int i = 0; i < aGrid.getAnimationCount(xx, yy); i++) {
+                if (aGrid.getAnimationType(xx, yy, i) == Game.MOVE_ANIMATION) {
+                    unionCell(dirty, aGrid.getFromX(xx, yy, i), aGrid.getFromY(xx, yy, i));
+                }
+            }
+        }
+    }
+
+    private void unionCell(Rect dirty, int xx, int yy) {
+        // Merging tiles grow past their cell, but never by a full grid line
+        int sX = startingX + (cellSize + gridWidth) * xx;
+        int sY = startingY + (cellSize + gridWidth) * yy;
+        dirty.union(sX, sY, sX + cellSize + gridWidth * 2,
+                sY + cellSize + gridWidth * 2);
+    }
+
+    private void drawCells(Canvas canvas, GameSnapshot frame) {
+        paint.setTextSize(textSize);
+        paint.setTextAlign(Paint.Align.CENTER);
+        PackedBoard board = frame.board;
+        AnimationGrid aGrid = frame.aGrid;
+        // Outputting the animated cells; the rest are in boardLayer
+        for (long cells = liveCells; cells != 0; cells &= cells - 1) {
+            int cell = Long.numberOfTrailingZeros(cells);
+            int xx = cell % numSquaresX;
+            int yy = cell / numSquaresX;
+            int sX = startingX + gridWidth + (cellSize + gridWidth) * xx;
+            int eX = sX + cellSize;
+            int sY = startingY + gridWidth + (cellSize + gridWidth) * yy;
+            int eY = sY + cellSize;
+
+            // Get and represent the value of the tile
+            int index = board.getExponent(xx, yy);
+            if (index != 0) {
+                // Check for any active animations
+                int animations = aGrid.getAnimationCount(xx, yy);
+                boolean animated = false;
+                for (int i = animations - 1; i >= 0; i--) {
+                    int animationType = aGrid.getAnimationType(xx, yy, i);
+                    // If this animation is not active, skip it
+                    if (animationType == Game.SPAWN_ANIMATION) {
+                        animated = true;
+                    }
+                    if (!aGrid.isActive(xx, yy, i)) {
+                        continue;
+                    }
+
+                    if (animationType == Game.SPAWN_ANIMATION) { // Spawning
+                        // animation
+                        double percentDone = aGrid.getPercentageDone(xx, yy, i);
+                        float textScaleSize = (float) (percentDone);
+                        paint.setTextSize(textSize * textScaleSize);
+
+                        float cellScaleSize = cellSize / 2
+                                * (1 - textScaleSize);
+                        tiles.draw(canvas, index,
+                                (int) (sX + cellScaleSize),
+                                (int) (sY + cellScaleSize),
+                                (int) (eX - cellScaleSize),
+                                (int) (eY - cellScaleSize));
+                    } else if (animationType == Game.MERGE_ANIMATION) { // Merging
+                        // Animation
+                        double percentDone = aGrid.getPercentageDone(xx, yy, i);
+                        float textScaleSize = (float) (1 + INITIAL_VELOCITY
+                                * percentDone + MERGING_ACCELERATION
+                                * percentDone * percentDone / 2);
+                        paint.setTextSize(textSize * textScaleSize);
+
+                        float cellScaleSize = cellSize / 2
+                                * (1 - textScaleSize);
+                        tiles.draw(canvas, index,
+                                (int) (sX + cellScaleSize),
+                                (int) (sY + cellScaleSize),
+                                (int) (eX - cellScaleSize),
+                                (int) (eY - cellScaleSize));
+                    } else if (animationType == Game.MOVE_ANIMATION) { // Moving
+                        // animation
+                        double percentDone = aGrid.getPercentageDone(xx, yy, i);
+                        int tempIndex = index;
+                        if (animations >= 2) {
+                            tempIndex = tempIndex - 1;
+                        }
+                        int previousX = aGrid.getFromX(xx, yy, i);
+                        int previousY = aGrid.getFromY(xx, yy, i);
+                        int dX = (int) ((xx - previousX)
+                                * (cellSize + gridWidth)
+                                * (percentDone - 1) * 1.0);
+                        int dY = (int) ((yy - previousY)
+                                * (cellSize + gridWidth)
+                                * (percentDone - 1) * 1.0);
+                        tiles.draw(canvas, tempIndex, sX + dX, sY + dY,
+                                eX + dX, eY + dY);
+                    }
+                    animated = true;
+                }
+
+                // Not started yet? Just draw the cell
+                if (!animated) {
+                    tiles.draw(canvas, index, sX, sY, eX, eY);
+                }
+            }
+        }
+    }
+
+    private void drawEndGameState(Canvas canvas, GameSnapshot frame) {
+        double alphaChange = 1;
+        AnimationGrid aGrid = frame.aGrid;
+        for (int i = 0; i < aGrid.getAnimationCount(-1, -1); i++) {
+            if (aGrid.getAnimationType(-1, -1, i) == Game.FADE_GLOBAL_ANIMATION) {
+                alphaChange = aGrid.getPercentageDone(-1, -1, i);
+            }
+        }
+        if (endGameOverlay == null || endGameOverlayWon != frame.won) {
+            createEndGameOverlay(frame.won);
+        }
+        overlayPaint.setColor(frame.won ? TEXT_PINK : TEXT_BLACK);
+        overlayPaint.setAlpha((int) (255 * alphaChange));
+        canvas.drawBitmap(endGameOverlay, startingX, startingY, overlayPaint);
+    }
+
+    private void createEndGameStates(Canvas canvas, boolean win) {
+        int width = endingX - startingX;
+        int length = endingY - startingY;
+        int middleX = width / 2;
+        int middleY = length / 2;
+        if (win) {
+            paint.setColor(TEXT_PINK);
+            paint.setAlpha(255);
+            paint.setTextSize(gameOverTextSize);
+            paint.setTextAlign(Paint.Align.CENTER);
+            int textBottom = middleY - centerText();
+            canvas.drawText(winText, middleX, textBottom, paint);
+            paint.setTextSize(bodyTextSize);
+        } else {
+            paint.setColor(TEXT_BLACK);
+            paint.setAlpha(255);
+            paint.setTextSize(gameOverTextSize);
+            paint.setTextAlign(Paint.Align.CENTER);
+            canvas.drawText(loseText, middleX, middleY - centerText(), paint);
+        }
+    }
+
+    private void createBackgroundBitmap(int width, int height) {
+        background = pool.get(width, height, Bitmap.Config.RGB_565);
+        Canvas canvas = new Canvas(background);
+        // Opaque, so that a SurfaceView needs nothing underneath
+        canvas.drawColor(backgroundColor);
+        drawHeader(canvas);
+        drawNewGameButton(canvas);
+        drawBackground(canvas);
+        drawBackgroundGrid(canvas);
+        drawInstructions(canvas);
+
+    }
+
+    private void createEndGameOverlay(boolean win) {
+        pool.put(endGameOverlay);
+        // The text is a single color, so an alpha mask is all it takes
+        endGameOverlay = pool.get(endingX - startingX, endingY - startingY,
+                Bitmap.Config.ALPHA_8);
+        endGameOverlayWon = win;
+        createEndGameStates(new Canvas(endGameOverlay), win);
+    }
+
+    private void releaseEndGameOverlay() {
+        if (endGameOverlay != null) {
+            pool.put(endGameOverlay);
+            endGameOverlay = null;
+        }
+    }
+
+    private void tick(AnimationGrid aGrid, long frameTimeNanos, FrameStats stats) {
+        // The first frame of an animation starts it and has no delta
+        if (stats != null && frameTimeNanos != lastFPSTime) {
+            stats.ticked(frameTimeNanos - lastFPSTime);
+        }
+        aGrid.tickAll((frameTimeNanos - lastFPSTime) * animationSpeed);
+        lastFPSTime = frameTimeNanos;
+    }
+
+    /**
+     * Computes the layout for a width x height area without rendering
+     * anything, for when the board is drawn elsewhere.
+     */
+    public void getLayout(int width, int height) {
+        this.width = width;
+        this.height = height;
+        cellSize = cellSize(width, height, numSquaresX, numSquaresY);
+        gridWidth = cellSize / 7;
+        iconSize = cellSize / 2;
+
+        paint.setTextAlign(Paint.Align.CENTER);
+        paint.setTextSize(cellSize);
+        textSize = cellSize * cellSize
+                / Math.max(cellSize, paint.measureText("0000"));
+        cellTextSize = textSize * 0.9f;
+        titleTextSize = textSize / 3;
+        bodyTextSize = (int) (textSize / 1.5);
+        instructionsTextSize = (int) (textSize / 1.8);
+        headerTextSize = (int)(textSize * 3);
+        gameOverTextSize = textSize * 2;
+        textPaddingSize = (int) (textSize / 3);
+        iconPaddingSize = (int) (textSize / 5);
+
+        // Grid Dimensions
+        getBoardBounds(width, height, numSquaresX, numSquaresY, boardBounds);
+        startingX = boardBounds.left;
+        endingX = boardBounds.right;
+        startingY = boardBounds.top;
+        endingY = boardBounds.bottom;
+
+        paint.setTextSize(titleTextSize);
+
+        int textShiftYAll = centerText();
+        // static variables
+        sYAll = (int) (startingY - cellSize * 1.25);
+        titleStartYAll = (int) (sYAll + textPaddingSize + titleTextSize / 2 - textShiftYAll);
+        bodyStartYAll = (int) (titleStartYAll + textPaddingSize + titleTextSize
+                / 2 + bodyTextSize / 2);
+
+        titleWidthHighScore = (int) (paint.measureText(highScoreTitle));
+        titleWidthScore = (int) (paint.measureText(scoreTitle));
+        paint.setTextSize(bodyTextSize);
+        textShiftYAll = centerText();
+        eYAll = (int) (bodyStartYAll + textShiftYAll + bodyTextSize / 2 + textPaddingSize);
+
+        overlayBounds.set(0, 0, width, FrameStats.getOverlayHeight(titleTextSize));
+
+        sYIcons = (startingY) - (int)(cellSize*1.4);
+        sXNewGame = ( startingX + (int)(cellSize*1.3));
+    }
+
+    static int cellSize(int width, int height, int numSquaresX, int numSquaresY) {
+        return Math.min(width / (numSquaresX + 1), height / (numSquaresY + 3));
+    }
+
+    /**
+     * Where the board goes on a width x height view.
+     */
+    static void getBoardBounds(int width, int height, int numSquaresX, int numSquaresY,
+                               Rect out) {
+        int cellSize = cellSize(width, height, numSquaresX, numSquaresY);
+        int gridWidth = cellSize / 7;
+        int boardMiddleX = width / 2;
+        int boardMiddleY = height / 2 + cellSize / 2;
+        double halfNumSquaresX = numSquaresX / 2d;
+        double halfNumSquaresY = numSquaresY / 2d;
+        out.set((int) (boardMiddleX - (cellSize + gridWidth)
+                        * halfNumSquaresX - gridWidth / 2),
+                (int) (boardMiddleY - (cellSize*1.25 + gridWidth)
+                        * halfNumSquaresY - gridWidth / 2),
+                (int) (boardMiddleX + (cellSize + gridWidth)
+                        * halfNumSquaresX + gridWidth / 2),
+                (int) (boardMiddleY + (cellSize*0.75 + gridWidth)
+                        * halfNumSquaresY + gridWidth / 2));
+    }
+
+    /**
+     * Draws an empty board where a renderer would put it, with plain shapes
+     * and no resources, for while the renderer is still loading. bounds is
+     * scratch space.
+     */
+    static void drawPlaceholder(Canvas canvas, int width, int height, int numSquaresX,
+                                int numSquaresY, int backgroundColor, int cellColor,
+                                Paint paint, Rect bounds) {
+        canvas.drawColor(backgroundColor);
+        getBoardBounds(width, height, numSquaresX, numSquaresY, bounds);
+        // The color of background_rectangle
+        paint.setColor(0xFF000000);
+        canvas.drawRect(bounds, paint);
+        int cellSize = cellSize(width, height, numSquaresX, numSquaresY);
+        int gridWidth = cellSize / 7;
+        paint.setColor(cellColor);
+        for (int xx = 0; xx < numSquaresX; xx++) {
+            for (int yy = 0; yy < numSquaresY; yy++) {
+                int sX = bounds.left + gridWidth + (cellSize + gridWidth) * xx;
+                int sY = bounds.top + gridWidth + (cellSize + gridWidth) * yy;
+                canvas.drawRect(sX, sY, sX + cellSize, sY + cellSize, paint);
+            }
+        }
+    }
+
+    private int centerText() {
+        return (int) ((paint.descent() + paint.ascent()) / 2);
+    }
+}
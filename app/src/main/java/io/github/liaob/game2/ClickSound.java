@@ -0,0 +1,41 @@
+package io.github.liaob.game2;
+
+import android.content.Context;
+
+public class ClickSound implements GameListener {
+
+    private final SoundPlayer soundPlayer;
+
+    public ClickSound(Context context) {
+        soundPlayer = new SoundPlayer(context, R.raw.click);
+    }
+
+    public void release() {
+        soundPlayer.release();
+    }
+
+    @Override
+    public void onMove(int direction, boolean moved) {
+        soundPlayer.play(R.raw.click);
+    }
+
+    @Override
+    public void onNewGame() {
+    }
+
+    @Override
+    public void onUndo() {
+    }
+
+    @Override
+    public void onRedo() {
+    }
+
+    @Override
+    public void onGameEnd(boolean won) {
+    }
+
+    @Override
+    public void onPersonalBest(String personalBest) {
+    }
+}
@@ -0,0 +1,203 @@
+package io.github.liaob.game2;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Frame timings of a {@link BoardRenderer}: how long each frame and its
+ * animated cells take to draw, the time between the frames of an animation
+ * with the frames it dropped against the vsync interval, and the deltas
+ * AnimationGrid.tickAll is advanced by. Recording allocates nothing, so it
+ * can stay on while measuring; the numbers can be shown over the board and
+ * dumped to a file to compare rendering changes.
+ *
+ * The renderer records on whichever thread draws, while the overlay switch
+ * and the dump come from the UI thread, so every method locks this object.
+ */
+public class FrameStats {
+
+    public static final String FILE_NAME = "frame_stats.txt";
+
+    private static final long DEFAULT_VSYNC_NANOS = 1000000000L / 60;
+    private static final int OVERLAY_LINES = 3;
+
+    private final FrameHistogram drawTimes = new FrameHistogram("draw");
+    private final FrameHistogram cellTimes = new FrameHistogram("cells");
+    private final FrameHistogram frameIntervals = new FrameHistogram("interval");
+    private final FrameHistogram tickDeltas = new FrameHistogram("tick");
+
+    private long vsyncNanos = DEFAULT_VSYNC_NANOS;
+    // Frames that came later than one vsync after the previous one, and the
+    // vsyncs missed in all
+    private long jankFrames;
+    private long droppedFrames;
+    // Start of the previous frame, while an animation asks for more
+    private long lastFrameNanos = -1;
+    private long frameStartNanos;
+
+    private boolean overlayEnabled = false;
+    private final Paint overlayPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint overlayBackground = new Paint();
+    // One overlay line, built in place
+    private final char[] text = new char[64];
+
+    public FrameStats() {
+        overlayPaint.setColor(0xFFFFFFFF);
+        overlayBackground.setColor(0xA0000000);
+    }
+
+    /**
+     * Sets the display's refresh rate, which frame intervals are measured
+     * against.
+     */
+    public synchronized void setRefreshRate(float hertz) {
+        if (hertz > 0) {
+            vsyncNanos = (long) (1000000000L / hertz);
+        }
+    }
+
+    public synchronized boolean isOverlayEnabled() {
+        return overlayEnabled;
+    }
+
+    public synchronized void setOverlayEnabled(boolean enabled) {
+        overlayEnabled = enabled;
+    }
+
+    public synchronized void clear() {
+        drawTimes.clear();
+        cellTimes.clear();
+        frameIntervals.clear();
+        tickDeltas.clear();
+        jankFrames = 0;
+        droppedFrames = 0;
+        lastFrameNanos = -1;
+    }
+
+    /**
+     * Called as a frame for frameTimeNanos starts drawing.
+     */
+    synchronized void frameStarted(long frameTimeNanos) {
+        frameStartNanos = System.nanoTime();
+        if (lastFrameNanos >= 0) {
+            long interval = frameTimeNanos - lastFrameNanos;
+            frameIntervals.record(interval);
+            long dropped = (interval + vsyncNanos / 2) / vsyncNanos - 1;
+            if (dropped > 0) {
+                jankFrames++;
+                droppedFrames += dropped;
+            }
+        }
+        lastFrameNanos = frameTimeNanos;
+    }
+
+    synchronized void cellsDrawn(long nanos) {
+        cellTimes.record(nanos);
+    }
+
+    synchronized void ticked(long deltaNanos) {
+        tickDeltas.record(deltaNanos);
+    }
+
+    /**
+     * Called when the frame is drawn; moreFrames is whether an animation
+     * asks for the next one, which is then expected one vsync later.
+     */
+    synchronized void frameEnded(boolean moreFrames) {
+        drawTimes.record(System.nanoTime() - frameStartNanos);
+        if (!moreFrames) {
+            lastFrameNanos = -1;
+        }
+    }
+
+    /**
+     * The height of the overlay at textSize, for laying it out.
+     */
+    public static int getOverlayHeight(float textSize) {
+        return (int) (textSize * (OVERLAY_LINES + 0.5f));
+    }
+
+    synchronized void drawOverlay(Canvas canvas, Rect bounds, float textSize) {
+        canvas.drawRect(bounds, overlayBackground);
+        overlayPaint.setTextSize(textSize);
+        overlayPaint.setTextAlign(Paint.Align.LEFT);
+        float x = bounds.left + textSize / 2;
+        float y = bounds.top + textSize;
+
+        int length = append(text, 0, "draw p50 ");
+        length = appendMillis(text, length, drawTimes.getPercentileNanos(0.5));
+        length = append(text, length, " p95 ");
+        length = appendMillis(text, length, drawTimes.getPercentileNanos(0.95));
+        length = append(text, length, " max ");
+        length = appendMillis(text, length, drawTimes.getMaxNanos());
+        canvas.drawText(text, 0, length, x, y, overlayPaint);
+
+        length = append(text, 0, "cells p95 ");
+        length = appendMillis(text, length, cellTimes.getPercentileNanos(0.95));
+        length = append(text, length, " tick p95 ");
+        length = appendMillis(text, length, tickDeltas.getPercentileNanos(0.95));
+        canvas.drawText(text, 0, length, x, y + textSize, overlayPaint);
+
+        length = append(text, 0, "jank ");
+        length = appendLong(text, length, jankFrames);
+        length = append(text, length, " dropped ");
+        length = appendLong(text, length, droppedFrames);
+        length = append(text, length, " of ");
+        length = appendLong(text, length, drawTimes.getCount());
+        canvas.drawText(text, 0, length, x, y + textSize * 2, overlayPaint);
+    }
+
+    /**
+     * Writes the jank counts and every histogram to file, replacing it.
+     */
+    public synchronized void writeTo(File file) throws IOException {
+        Writer out = new FileWriter(file);
+        try {
+            out.append("vsync\t").append(String.valueOf(vsyncNanos / 1000))
+                    .append("\tjank ").append(String.valueOf(jankFrames))
+                    .append("\tdropped ").append(String.valueOf(droppedFrames)).append('\n');
+            drawTimes.writeTo(out);
+            cellTimes.writeTo(out);
+            frameIntervals.writeTo(out);
+            tickDeltas.writeTo(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static int append(char[] text, int length, String s) {
+        s.getChars(0, s.length(), text, length);
+        return length + s.length();
+    }
+
+    private static int appendLong(char[] text, int length, long value) {
+        if (value == 0) {
+            text[length] = '0';
+            return length + 1;
+        }
+        int digits = 0;
+        for (long v = value; v != 0; v /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            text[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return length + digits;
+    }
+
+    // Milliseconds with one decimal
+    private static int appendMillis(char[] text, int length, long nanos) {
+        long tenths = (nanos + 50000) / 100000;
+        length = appendLong(text, length, tenths / 10);
+        text[length] = '.';
+        text[length + 1] = (char) ('0' + tenths % 10);
+        return length + 2;
+    }
+}
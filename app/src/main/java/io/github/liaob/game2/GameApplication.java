@@ -0,0 +1,35 @@
+package io.github.liaob.game2;
+
+import android.app.Application;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Holds what outlives an activity: the {@link SaveStore}, so recreating the
+ * activity, on rotation say, neither waits for its writes nor reads the file
+ * again.
+ */
+public class GameApplication extends Application {
+
+    private static final String TAG = "GameApplication";
+
+    private SaveStore saveStore;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        saveStore = new SaveStore(new File(getFilesDir(), MainActivity.SAVE_FILE));
+        saveStore.setErrorListener(new SaveStore.ErrorListener() {
+            @Override
+            public void onSaveFailed(IOException e) {
+                Log.w(TAG, "Could not save the game", e);
+            }
+        });
+    }
+
+    public SaveStore getSaveStore() {
+        return saveStore;
+    }
+}
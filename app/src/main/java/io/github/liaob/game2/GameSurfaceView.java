@@ -0,0 +1,285 @@
+package io.github.liaob.game2;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.os.Process;
+import android.view.Choreographer;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+/**
+ * Draws the board on a dedicated render thread, one frame per vsync as paced
+ * by {@link Choreographer}. The UI thread hands game state over with
+ * {@link #publish(Game, boolean)}, and moves queue up behind the animation
+ * on screen, so moves never wait for drawing and animations keep their frame
+ * rate while the UI thread is busy. Until the renderer for the surface's
+ * size is loaded, in the background, a placeholder board is drawn.
+ */
+public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callback,
+        Handler.Callback, Choreographer.FrameCallback, RendererLoader.Callback {
+
+    private static final int MSG_REQUEST_FRAME = 0;
+    private static final int MSG_RELEASE = 1;
+
+    private final HandlerThread thread;
+    private final Handler handler;
+
+    // Written on the UI thread and read on the render thread, under its own
+    // monitor
+    private final SnapshotQueue published;
+    // Set when the newest state replaces the one being drawn
+    private boolean replacePublished = false;
+
+    // Guards the surface and its size; held while drawing so the surface is
+    // never destroyed mid-frame
+    private final Object surfaceLock = new Object();
+    private boolean surfaceReady = false;
+    private int surfaceWidth;
+    private int surfaceHeight;
+
+    // Set on the UI thread and handed to each renderer as it draws
+    private volatile FrameStats frameStats;
+    private volatile LatencyTracer latencyTracer;
+    private volatile StartupTimer startupTimer;
+
+    // Only touched on the render thread. The renderer is loaded in the
+    // background, and until the one for the current sizes is in the
+    // frames show a placeholder.
+    private BoardRenderer renderer;
+    private boolean rendererLoaded = false;
+    private final RendererLoader loader;
+    private int layoutWidth;
+    private int layoutHeight;
+    private int layoutSquaresX;
+    private int layoutSquaresY;
+    private final int backgroundColor;
+    private final int placeholderCellColor;
+    private final Paint placeholderPaint = new Paint();
+    private final Rect placeholderBounds = new Rect();
+    private final GameSnapshot frame;
+    private final Rect dirty = new Rect();
+    private Choreographer choreographer;
+    private boolean frameScheduled = false;
+    private boolean redrawAll = true;
+
+    public GameSurfaceView(Context context, int numSquaresX, int numSquaresY) {
+        super(context);
+        Resources resources = context.getResources();
+        backgroundColor = resources.getColor(R.color.background);
+        placeholderCellColor = resources.getColor(R.color.text_brown);
+        published = new SnapshotQueue(SnapshotQueue.CAPACITY, numSquaresX, numSquaresY);
+        frame = new GameSnapshot(numSquaresX, numSquaresY);
+
+        thread = new HandlerThread("GameRenderer", Process.THREAD_PRIORITY_DISPLAY);
+        thread.start();
+        handler = new Handler(thread.getLooper(), this);
+        loader = new RendererLoader(context, handler, this);
+        getHolder().addCallback(this);
+    }
+
+    /**
+     * Copies the state of game for the frames to come. A chained state, one
+     * move on from the last, is drawn once the animations before it end; any
+     * other is drawn on the next frame. Called on the UI thread.
+     */
+    public void publish(Game game, boolean chain) {
+        synchronized (published) {
+            if (!chain) {
+                published.clear();
+                replacePublished = true;
+            }
+            published.add(game);
+        }
+        handler.sendEmptyMessage(MSG_REQUEST_FRAME);
+    }
+
+    /**
+     * Records the timings of the frames drawn into stats, or stops if it is
+     * null. Called on the UI thread.
+     */
+    public void setFrameStats(FrameStats stats) {
+        frameStats = stats;
+    }
+
+    /**
+     * Reports the frames drawn to tracer, or stops if it is null. Called on
+     * the UI thread.
+     */
+    public void setLatencyTracer(LatencyTracer tracer) {
+        latencyTracer = tracer;
+    }
+
+    /**
+     * Reports the frames drawn to timer. Called on the UI thread.
+     */
+    public void setStartupTimer(StartupTimer timer) {
+        startupTimer = timer;
+    }
+
+    public void release() {
+        getHolder().removeCallback(this);
+        handler.sendEmptyMessage(MSG_RELEASE);
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        synchronized (surfaceLock) {
+            surfaceWidth = width;
+            surfaceHeight = height;
+            surfaceReady = true;
+        }
+        handler.sendEmptyMessage(MSG_REQUEST_FRAME);
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        // Waits out a frame in progress; the surface is gone after we return
+        synchronized (surfaceLock) {
+            surfaceReady = false;
+        }
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        switch (msg.what) {
+            case MSG_REQUEST_FRAME:
+                scheduleFrame();
+                return true;
+            case MSG_RELEASE:
+                loader.cancel();
+                releaseRenderer();
+                if (choreographer != null) {
+                    choreographer.removeFrameCallback(this);
+                }
+                thread.quit();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void scheduleFrame() {
+        if (frameScheduled) {
+            return;
+        }
+        if (choreographer == null) {
+            // Choreographer is per thread, so this one calls back on the
+            // render thread
+            choreographer = Choreographer.getInstance();
+        }
+        choreographer.postFrameCallback(this);
+        frameScheduled = true;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        int waiting;
+        synchronized (published) {
+            if ((replacePublished || !frame.aGrid.hasAnimations()) && published.poll(frame)) {
+                replacePublished = false;
+                redrawAll = true;
+            }
+            waiting = published.size();
+        }
+        boolean needsFrame;
+        synchronized (surfaceLock) {
+            if (!surfaceReady) {
+                return;
+            }
+            loadRenderer();
+            SurfaceHolder holder = getHolder();
+            if (!rendererLoaded) {
+                drawPlaceholder(holder);
+                return;
+            }
+            // Catch up while moves are waiting
+            renderer.setAnimationSpeed(1 + waiting);
+            renderer.setFrameStats(frameStats);
+            renderer.setLatencyTracer(latencyTracer);
+            Canvas canvas = redrawAll ? holder.lockCanvas() : holder.lockCanvas(dirty);
+            if (canvas == null) {
+                return;
+            }
+            try {
+                needsFrame = renderer.drawFrame(canvas, frame, frameTimeNanos, dirty);
+            } finally {
+                holder.unlockCanvasAndPost(canvas);
+            }
+        }
+        redrawAll = false;
+        StartupTimer timer = startupTimer;
+        if (timer != null) {
+            timer.frameDrawn(true);
+        }
+
+        if (needsFrame || waiting != 0) {
+            scheduleFrame();
+        }
+    }
+
+    @Override
+    public void onRendererLoaded(BoardRenderer loaded) {
+        renderer = loaded;
+        rendererLoaded = true;
+        redrawAll = true;
+        scheduleFrame();
+    }
+
+    // Asks for a renderer for the surface and the board in frame, unless
+    // one is in or on its way. Called with surfaceLock held.
+    private void loadRenderer() {
+        int squaresX = frame.board.getWidth();
+        int squaresY = frame.board.getHeight();
+        if (surfaceWidth == layoutWidth && surfaceHeight == layoutHeight
+                && squaresX == layoutSquaresX && squaresY == layoutSquaresY) {
+            return;
+        }
+        layoutWidth = surfaceWidth;
+        layoutHeight = surfaceHeight;
+        layoutSquaresX = squaresX;
+        layoutSquaresY = squaresY;
+        rendererLoaded = false;
+        releaseRenderer();
+        loader.load(squaresX, squaresY, surfaceWidth, surfaceHeight, true);
+    }
+
+    // The placeholder is drawn until the next renderer is in, so the bitmaps
+    // of this one can go to the next
+    private void releaseRenderer() {
+        if (renderer != null) {
+            renderer.release();
+            renderer = null;
+        }
+    }
+
+    private void drawPlaceholder(SurfaceHolder holder) {
+        Canvas canvas = holder.lockCanvas();
+        if (canvas == null) {
+            return;
+        }
+        try {
+            BoardRenderer.drawPlaceholder(canvas, surfaceWidth, surfaceHeight,
+                    frame.board.getWidth(), frame.board.getHeight(), backgroundColor,
+                    placeholderCellColor, placeholderPaint, placeholderBounds);
+        } finally {
+            holder.unlockCanvasAndPost(canvas);
+        }
+        // The renderer, once in, starts from a whole frame
+        redrawAll = true;
+        StartupTimer timer = startupTimer;
+        if (timer != null) {
+            timer.frameDrawn(false);
+        }
+    }
+}
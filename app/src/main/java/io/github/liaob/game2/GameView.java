@@ -1,523 +1,307 @@
 package io.github.liaob.game2;
 
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.content.res.Resources;
-import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.drawable.BitmapDrawable;
-import android.graphics.drawable.Drawable;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.preference.PreferenceManager;
 import android.view.View;
 
-import java.util.ArrayList;
 
-public class GameView extends View{
+public class GameView extends View implements GameListener, RendererLoader.Callback {
+
+    private static final String PERSONAL_BEST = "Personal Best";
 
-    Paint paint = new Paint();
     public Game game;
+    private ClickSound clickSound;
     public boolean hasSaveState = false;
-    private final int numCellTypes = 12;
     public boolean continueButtonEnabled = false;
 
-    private int cellSize = 0;
-    private float textSize = 0;
-    private float cellTextSize = 0;
-    private int gridWidth = 0;
-    private int TEXT_BLACK;
-    private int TEXT_WHITE;
-    private int TEXT_PINK;
-    private int TEXT_BROWN;
-    public int startingX;
-    public int headerX;
-    public int startingY;
-    public int endingX;
-    public int endingY;
-    private int textPaddingSize;
-    private int iconPaddingSize;
-
-    // Assets
-    private Drawable backgroundRectangle;
-    private Drawable[] cellRectangle = new Drawable[numCellTypes];
-    private BitmapDrawable[] bitmapCell = new BitmapDrawable[numCellTypes];
-    private Drawable newGameIcon;
-    private Bitmap background = null;
-    private BitmapDrawable loseGameOverlay;
-    private BitmapDrawable winGameFinalOverlay;
-
-    // Text variables
-    private int sYAll;
-    private int titleStartYAll;
-    private int bodyStartYAll;
-    private int eYAll;
-    private int titleWidthHighScore;
-    private int titleWidthScore;
+    // Loaded in the background; until the one for the current view and
+    // board size is in, onDraw draws a placeholder
+    private BoardRenderer renderer;
+    private boolean rendererLoaded = false;
+    private final RendererLoader loader;
+    // The sizes the renderer, or the one loading, is for
+    private int layoutWidth;
+    private int layoutHeight;
+    private int layoutSquaresX;
+    private int layoutSquaresY;
+    private final int backgroundColor;
+    private final int placeholderCellColor;
+    private final Paint placeholderPaint = new Paint();
+    private final Rect placeholderBounds = new Rect();
+    // What onDraw draws, copied from the game whenever it changes
+    private final GameSnapshot frame;
+    // Moves made while frame was still animating, drawn after it
+    private final SnapshotQueue pending;
+    private final Rect dirty = new Rect();
+    // Draws the board on its own thread instead of onDraw, when set
+    private GameSurfaceView surface;
+    // The game on screen: game, or another one passed to show
+    private Game shown;
+    // Times touches through to the screen, when set
+    LatencyTracer latencyTracer;
+    // Runs when the new game button is held, when set
+    Runnable boardSizeAction;
+    private FrameStats frameStats;
+    private StartupTimer startupTimer;
 
     // Icon variables
     public int sYIcons;
     public int sXNewGame;
     public int iconSize;
 
-    // Text values
-    private String headerText;
-    private String highScoreTitle;
-    private String scoreTitle;
-    private String instructionsText;
-    private String winText;
-    private String loseText;
-
-    long lastFPSTime = System.nanoTime();
-    long currentTime = System.nanoTime();
-
-    float titleTextSize;
-    float bodyTextSize;
-    float headerTextSize;
-    float instructionsTextSize;
-    float gameOverTextSize;
-
-    boolean refreshLastTime = true;
-
-    static final int BASE_ANIMATION_TIME = 100000000;
-
-    static final float MERGING_ACCELERATION = (float) -0.5;
-    static final float INITIAL_VELOCITY = (1 - MERGING_ACCELERATION) / 4;
-
     @Override
     public void onDraw(Canvas canvas) {
-        // Reset the transparency of the screen
-
-        canvas.drawBitmap(background, 0, 0, paint);
-
-        drawScoreText(canvas);
-
-        if (!game.isActive() && !game.aGrid.isAnimationActive()) {
-            drawNewGameButton(canvas);
+        if (surface != null) {
+            return;
         }
-
-        drawCells(canvas);
-
-        if (!game.isActive()) {
-            drawEndGameState(canvas);
+        if (!rendererLoaded) {
+            BoardRenderer.drawPlaceholder(canvas, getWidth(), getHeight(), shown.getWidth(),
+                    shown.getHeight(), backgroundColor, placeholderCellColor,
+                    placeholderPaint, placeholderBounds);
+            if (startupTimer != null) {
+                startupTimer.frameDrawn(false);
+            }
+            return;
         }
-
-        // Refresh the screen if there is still an animation running
-        if (game.aGrid.isAnimationActive()) {
-            invalidate(startingX, startingY, endingX, endingY);
-            tick();
-            // Refresh one last time on game end.
-        } else if (!game.isActive() && refreshLastTime) {
+        if (!frame.aGrid.hasAnimations()) {
+            pending.poll(frame);
+        }
+        // Catch up while moves are waiting
+        renderer.setAnimationSpeed(1 + pending.size());
+        boolean moreFrames = renderer.drawFrame(canvas, frame, System.nanoTime(), dirty);
+        if (!frame.aGrid.hasAnimations() && !pending.isEmpty()) {
+            // The next move starts on a whole new frame
             invalidate();
-            refreshLastTime = false;
+        } else if (moreFrames) {
+            invalidate(dirty);
+        }
+        if (startupTimer != null) {
+            startupTimer.frameDrawn(true);
         }
     }
 
     @Override
     protected void onSizeChanged(int width, int height, int oldw, int oldh) {
         super.onSizeChanged(width, height, oldw, oldh);
-        getLayout(width, height);
-        createBackgroundBitmap(width, height);
-        createBitmapCells();
-        createOverlays();
+        loadRenderer(width, height);
     }
 
-    private void drawDrawable(Canvas canvas, Drawable draw, int startingX,
-                              int startingY, int endingX, int endingY) {
-        draw.setBounds(startingX, startingY, endingX, endingY);
-        draw.draw(canvas);
+    // Asks for a renderer for a width x height view and the board shown,
+    // unless one is in or on its way
+    private void loadRenderer(int width, int height) {
+        if (width == 0 || height == 0 || (width == layoutWidth && height == layoutHeight
+                && shown.getWidth() == layoutSquaresX && shown.getHeight() == layoutSquaresY)) {
+            return;
+        }
+        layoutWidth = width;
+        layoutHeight = height;
+        layoutSquaresX = shown.getWidth();
+        layoutSquaresY = shown.getHeight();
+        rendererLoaded = false;
+        releaseRenderer();
+        // With a surface, only needed for hit-testing; the surface renders
+        // its own copy
+        loader.load(layoutSquaresX, layoutSquaresY, width, height, surface == null);
     }
 
-    private void drawScoreText(Canvas canvas) {
-        paint.setTextSize(bodyTextSize);
-        paint.setTextAlign(Paint.Align.CENTER);
-
-        int bodyWidthHighScore = (int) (paint.measureText("" + game.personalBest));
-        int bodyWidthScore = (int) (paint.measureText("" + game.moves));
-
-        int textWidthHighScore = Math.max(titleWidthHighScore,
-                bodyWidthHighScore) + textPaddingSize * 2;
-        int textWidthScore = Math.max(titleWidthScore, bodyWidthScore)
-                + textPaddingSize * 2;
-
-        int textMiddleHighScore = textWidthHighScore / 2;
-        int textMiddleScore = textWidthScore / 2;
-
-        int eXHighScore = endingX;
-        int sXHighScore = eXHighScore - textWidthHighScore;
-
-        int eXScore = sXHighScore - textPaddingSize;
-        int sXScore = eXScore - textWidthScore;
-
-        // Outputting high-scores box
-        backgroundRectangle.setBounds(sXHighScore, sYAll, eXHighScore, eYAll);
-        backgroundRectangle.draw(canvas);
-        paint.setTextSize(titleTextSize);
-        paint.setColor(TEXT_BROWN);
-        canvas.drawText(highScoreTitle, sXHighScore + textMiddleHighScore,
-                titleStartYAll, paint);
-        paint.setTextSize(bodyTextSize);
-        paint.setColor(TEXT_WHITE);
-        canvas.drawText(game.personalBest, sXHighScore
-                + textMiddleHighScore, bodyStartYAll, paint);
-
-        // Outputting scores box
-        backgroundRectangle.setBounds(sXScore, sYAll, eXScore, eYAll);
-        backgroundRectangle.draw(canvas);
-        paint.setTextSize(titleTextSize);
-        paint.setColor(TEXT_BROWN);
-        canvas.drawText(scoreTitle, sXScore + textMiddleScore, titleStartYAll,
-                paint);
-        paint.setTextSize(bodyTextSize);
-        paint.setColor(TEXT_WHITE);
-        canvas.drawText(game.moves, sXScore + textMiddleScore,
-                bodyStartYAll, paint);
+    // The placeholder is drawn until the next renderer is in, so the bitmaps
+    // of this one can go to the next
+    private void releaseRenderer() {
+        if (renderer != null) {
+            renderer.release();
+            renderer = null;
+        }
     }
 
-    private void drawNewGameButton(Canvas canvas) {
-        drawDrawable(canvas, backgroundRectangle, sXNewGame, sYAll,
-                    sXNewGame + (int)(cellSize*0.8), eYAll);
-        drawDrawable(canvas, newGameIcon, sXNewGame + iconPaddingSize, sYAll
-                        + iconPaddingSize, sXNewGame + (int)(cellSize*0.8) - iconPaddingSize,
-                eYAll - iconPaddingSize);
+    @Override
+    public void onRendererLoaded(BoardRenderer loaded) {
+        renderer = loaded;
+        renderer.setFrameStats(frameStats);
+        renderer.setLatencyTracer(latencyTracer);
+        rendererLoaded = true;
+        sYIcons = renderer.sYIcons;
+        sXNewGame = renderer.sXNewGame;
+        iconSize = renderer.iconSize;
+        invalidate();
     }
 
-    private void drawHeader(Canvas canvas) {
-        // Drawing the header
-        paint.setTextSize(headerTextSize);
-        paint.setColor(TEXT_BLACK);
-        paint.setTextAlign(Paint.Align.LEFT);
-        int textShiftY = (int) (centerText() * 2);
-        int headerStartY = sYAll - textShiftY;
-        canvas.drawText(headerText, sXNewGame - cellSize - iconPaddingSize, headerStartY, paint);
+    public GameView(Context context) {
+        super(context);
+        // Loading resources
+        game = new Game();
+        game.addListener(this);
+        shown = game;
+        clickSound = new ClickSound(context);
+        game.addListener(clickSound);
+        game.personalBest = PreferenceManager.getDefaultSharedPreferences(context)
+                .getString(PERSONAL_BEST, "N/A");
+        // Drawables and bitmaps load in the background; the first frames
+        // only need these two colors
+        Resources resources = context.getResources();
+        backgroundColor = resources.getColor(R.color.background);
+        placeholderCellColor = resources.getColor(R.color.text_brown);
+        loader = new RendererLoader(context, new Handler(), this);
+        frame = new GameSnapshot(game.getWidth(), game.getHeight());
+        pending = new SnapshotQueue(SnapshotQueue.CAPACITY, game.getWidth(), game.getHeight());
+        this.setBackgroundColor(backgroundColor);
+        setOnTouchListener(new InputListener(this));
+        game.newGame();
     }
 
-    public void drawInstructions(Canvas canvas) {
-        // Drawing the instructions
-        paint.setTextSize(instructionsTextSize);
-        paint.setTextAlign(Paint.Align.LEFT);
-        int textShiftY = centerText() * 5;
-        canvas.drawText(instructionsText, startingX, endingY - textShiftY
-                + textPaddingSize, paint);
+    /**
+     * Hands drawing over to surface, which must sit right behind this view.
+     * This view then stays transparent and only takes input.
+     */
+    public void setSurface(GameSurfaceView surface) {
+        this.surface = surface;
+        setBackgroundColor(0);
+        surface.publish(shown, false);
     }
 
-    private void drawBackground(Canvas canvas) {
-        drawDrawable(canvas, backgroundRectangle, startingX, startingY,
-                endingX, endingY);
+    /**
+     * Shows the game after it was changed without going through its moves,
+     * as when restoring a saved state.
+     */
+    public void reload() {
+        shown = game;
+        publish(false);
     }
 
-    private void drawBackgroundGrid(Canvas canvas) {
-        // Outputting the game grid
-        for (int xx = 0; xx < game.numSquaresX; xx++) {
-            for (int yy = 0; yy < game.numSquaresY; yy++) {
-                int sX = startingX + gridWidth + (cellSize + gridWidth) * xx;
-                int eX = sX + cellSize;
-                int sY = startingY + gridWidth + (cellSize + gridWidth) * yy;
-                int eY = sY + cellSize;
-
-                drawDrawable(canvas, cellRectangle[0], sX, sY, eX, eY);
-            }
-        }
+    /**
+     * Shows other instead of the game being played, until the next
+     * {@link #reload()}; call it again whenever other changes.
+     */
+    public void show(Game other) {
+        shown = other;
+        publish(false);
     }
 
-    private void drawCells(Canvas canvas) {
-        paint.setTextSize(textSize);
-        paint.setTextAlign(Paint.Align.CENTER);
-        // Outputting the individual cells
-        for (int xx = 0; xx < game.numSquaresX; xx++) {
-            for (int yy = 0; yy < game.numSquaresY; yy++) {
-                int sX = startingX + gridWidth + (cellSize + gridWidth) * xx;
-                int eX = sX + cellSize;
-                int sY = startingY + gridWidth + (cellSize + gridWidth) * yy;
-                int eY = sY + cellSize;
-
-                Tile currentTile = game.grid.getCellContent(xx, yy);
-                if (currentTile != null) {
-                    // Get and represent the value of the tile
-                    int value = currentTile.getValue();
-                    int index = log2(value);
-
-                    // Check for any active animations
-                    ArrayList<AnimationCell> aArray = game.aGrid
-                            .getAnimationCell(xx, yy);
-                    boolean animated = false;
-                    for (int i = aArray.size() - 1; i >= 0; i--) {
-                        AnimationCell aCell = aArray.get(i);
-                        // If this animation is not active, skip it
-                        if (aCell.getAnimationType() == Game.SPAWN_ANIMATION) {
-                            animated = true;
-                        }
-                        if (!aCell.isActive()) {
-                            continue;
-                        }
-
-                        if (aCell.getAnimationType() == Game.SPAWN_ANIMATION) { // Spawning
-                            // animation
-                            double percentDone = aCell.getPercentageDone();
-                            float textScaleSize = (float) (percentDone);
-                            paint.setTextSize(textSize * textScaleSize);
-
-                            float cellScaleSize = cellSize / 2
-                                    * (1 - textScaleSize);
-                            bitmapCell[index].setBounds(
-                                    (int) (sX + cellScaleSize),
-                                    (int) (sY + cellScaleSize),
-                                    (int) (eX - cellScaleSize),
-                                    (int) (eY - cellScaleSize));
-                            bitmapCell[index].draw(canvas);
-                        } else if (aCell.getAnimationType() == Game.MERGE_ANIMATION) { // Merging
-                            // Animation
-                            double percentDone = aCell.getPercentageDone();
-                            float textScaleSize = (float) (1 + INITIAL_VELOCITY
-                                    * percentDone + MERGING_ACCELERATION
-                                    * percentDone * percentDone / 2);
-                            paint.setTextSize(textSize * textScaleSize);
-
-                            float cellScaleSize = cellSize / 2
-                                    * (1 - textScaleSize);
-                            bitmapCell[index].setBounds(
-                                    (int) (sX + cellScaleSize),
-                                    (int) (sY + cellScaleSize),
-                                    (int) (eX - cellScaleSize),
-                                    (int) (eY - cellScaleSize));
-                            bitmapCell[index].draw(canvas);
-                        } else if (aCell.getAnimationType() == Game.MOVE_ANIMATION) { // Moving
-                            // animation
-                            double percentDone = aCell.getPercentageDone();
-                            int tempIndex = index;
-                            if (aArray.size() >= 2) {
-                                tempIndex = tempIndex - 1;
-                            }
-                            int previousX = aCell.extras[0];
-                            int previousY = aCell.extras[1];
-                            int currentX = currentTile.getX();
-                            int currentY = currentTile.getY();
-                            int dX = (int) ((currentX - previousX)
-                                    * (cellSize + gridWidth)
-                                    * (percentDone - 1) * 1.0);
-                            int dY = (int) ((currentY - previousY)
-                                    * (cellSize + gridWidth)
-                                    * (percentDone - 1) * 1.0);
-                            bitmapCell[tempIndex].setBounds(sX + dX, sY + dY,
-                                    eX + dX, eY + dY);
-                            bitmapCell[tempIndex].draw(canvas);
-                        }
-                        animated = true;
-                    }
-
-                    // No active animations? Just draw the cell
-                    if (!animated) {
-                        bitmapCell[index].setBounds(sX, sY, eX, eY);
-                        bitmapCell[index].draw(canvas);
-                    }
-                }
-            }
+    /**
+     * Records the timings of the frames drawn into stats, or stops if it is
+     * null.
+     */
+    public void setFrameStats(FrameStats stats) {
+        frameStats = stats;
+        if (renderer != null) {
+            renderer.setFrameStats(stats);
+        }
+        if (surface != null) {
+            surface.setFrameStats(stats);
         }
     }
 
-    private void drawEndGameState(Canvas canvas) {
-        double alphaChange = 1;
-        continueButtonEnabled = false;
-        for (AnimationCell animation : game.aGrid.globalAnimation) {
-            if (animation.getAnimationType() == Game.FADE_GLOBAL_ANIMATION) {
-                alphaChange = animation.getPercentageDone();
-            }
+    /**
+     * Follows moves made by touch to the screen with tracer, or stops if it
+     * is null.
+     */
+    public void setLatencyTracer(LatencyTracer tracer) {
+        latencyTracer = tracer;
+        if (renderer != null) {
+            renderer.setLatencyTracer(tracer);
         }
-        BitmapDrawable displayOverlay = null;
-        if (game.gameWon()) {
-                displayOverlay = winGameFinalOverlay;
-            }
-        else {
-            displayOverlay = loseGameOverlay;
-        }
-        if (displayOverlay != null) {
-            displayOverlay.setBounds(startingX, startingY, endingX, endingY);
-            displayOverlay.setAlpha((int) (255 * alphaChange));
-            displayOverlay.draw(canvas);
+        if (surface != null) {
+            surface.setLatencyTracer(tracer);
         }
     }
 
-    private void createEndGameStates(Canvas canvas, boolean win,
-                                     boolean showButton) {
-        int width = endingX - startingX;
-        int length = endingY - startingY;
-        int middleX = width / 2;
-        int middleY = length / 2;
-        if (win) {
-            paint.setColor(TEXT_PINK);
-            paint.setAlpha(255);
-            paint.setTextSize(gameOverTextSize);
-            paint.setTextAlign(Paint.Align.CENTER);
-            int textBottom = middleY - centerText();
-            canvas.drawText(winText, middleX, textBottom, paint);
-            paint.setTextSize(bodyTextSize);
-        } else {
-            paint.setColor(TEXT_BLACK);
-            paint.setAlpha(255);
-            paint.setTextSize(gameOverTextSize);
-            paint.setTextAlign(Paint.Align.CENTER);
-            canvas.drawText(loseText, middleX, middleY - centerText(), paint);
+    /**
+     * Reports every frame drawn to timer, which the first frames of a start
+     * are timed by.
+     */
+    public void setStartupTimer(StartupTimer timer) {
+        startupTimer = timer;
+        if (surface != null) {
+            surface.setStartupTimer(timer);
         }
     }
 
-    private void createBackgroundBitmap(int width, int height) {
-        background = Bitmap
-                .createBitmap(width, height, Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(background);
-        drawHeader(canvas);
-        drawNewGameButton(canvas);
-        drawBackground(canvas);
-        drawBackgroundGrid(canvas);
-        drawInstructions(canvas);
+    /**
+     * Runs action when the new game button is held, to choose the board
+     * size.
+     */
+    public void setBoardSizeAction(Runnable action) {
+        boardSizeAction = action;
+    }
 
+    /**
+     * Draws the game again, for when only the way it is drawn changed.
+     */
+    public void redraw() {
+        publish(false);
     }
 
-    private void createBitmapCells() {
-        paint.setTextSize(cellTextSize);
-        paint.setTextAlign(Paint.Align.CENTER);
-        Resources resources = getResources();
-        for (int xx = 0; xx < bitmapCell.length; xx++) {
-            Bitmap bitmap = Bitmap.createBitmap(cellSize, cellSize,
-                    Bitmap.Config.ARGB_8888);
-            Canvas canvas = new Canvas(bitmap);
-            drawDrawable(canvas, cellRectangle[xx], 0, 0, cellSize, cellSize);
-            bitmapCell[xx] = new BitmapDrawable(resources, bitmap);
+    public void release() {
+        loader.cancel();
+        releaseRenderer();
+        game.removeListener(clickSound);
+        clickSound.release();
+        if (surface != null) {
+            surface.release();
         }
     }
 
-    private void createOverlays() {
-        Resources resources = getResources();
-        // Initalize overlays
-        Bitmap bitmap = Bitmap.createBitmap(endingX - startingX, endingY
-                - startingY, Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(bitmap);
-        createEndGameStates(canvas, true, true);
-        bitmap = Bitmap.createBitmap(endingX - startingX, endingY - startingY,
-                Bitmap.Config.ARGB_8888);
-        canvas = new Canvas(bitmap);
-        createEndGameStates(canvas, true, false);
-        winGameFinalOverlay = new BitmapDrawable(resources, bitmap);
-        bitmap = Bitmap.createBitmap(endingX - startingX, endingY - startingY,
-                Bitmap.Config.ARGB_8888);
-        canvas = new Canvas(bitmap);
-        createEndGameStates(canvas, false, false);
-        loseGameOverlay = new BitmapDrawable(resources, bitmap);
+    /**
+     * Shows the state shown is in. A chained state, one move on from the last,
+     * waits for the animations on screen to end; any other replaces them.
+     */
+    private void publish(boolean chain) {
+        // The buttons move with the board size
+        loadRenderer(getWidth(), getHeight());
+        if (surface != null) {
+            surface.publish(shown, chain);
+        } else if (chain && (frame.aGrid.hasAnimations() || !pending.isEmpty())) {
+            pending.add(shown);
+        } else {
+            pending.clear();
+            frame.copyFrom(shown);
+            invalidate();
+        }
     }
 
-    private void tick() {
-        currentTime = System.nanoTime();
-        game.aGrid.tickAll(currentTime - lastFPSTime);
-        lastFPSTime = currentTime;
+    @Override
+    public void onNewGame() {
+        if (shown == game) {
+            publish(false);
+        }
     }
 
-    public void resyncTime() {
-        lastFPSTime = System.nanoTime();
+    @Override
+    public void onMove(int direction, boolean moved) {
+        // A move that changed nothing leaves the animations running
+        if (shown == game && moved) {
+            publish(true);
+        }
     }
 
-    private static int log2(int n) {
-        if (n <= 0)
-            throw new IllegalArgumentException();
-        return 31 - Integer.numberOfLeadingZeros(n);
+    @Override
+    public void onUndo() {
+        if (shown == game) {
+            publish(false);
+        }
     }
 
-    private void getLayout(int width, int height) {
-        cellSize = Math.min(width / (game.numSquaresX + 1), height
-                / (game.numSquaresY + 3));
-        gridWidth = cellSize / 7;
-        int screenMiddleX = width / 2;
-        int screenMiddleY = height / 2;
-        int boardMiddleX = screenMiddleX;
-        int boardMiddleY = screenMiddleY + cellSize / 2;
-        iconSize = cellSize / 2;
-
-        paint.setTextAlign(Paint.Align.CENTER);
-        paint.setTextSize(cellSize);
-        textSize = cellSize * cellSize
-                / Math.max(cellSize, paint.measureText("0000"));
-        cellTextSize = textSize * 0.9f;
-        titleTextSize = textSize / 3;
-        bodyTextSize = (int) (textSize / 1.5);
-        instructionsTextSize = (int) (textSize / 1.8);
-        headerTextSize = (int)(textSize * 3);
-        gameOverTextSize = textSize * 2;
-        textPaddingSize = (int) (textSize / 3);
-        iconPaddingSize = (int) (textSize / 5);
-
-        // Grid Dimensions
-        double halfNumSquaresX = game.numSquaresX / 2d;
-        double halfNumSquaresY = game.numSquaresY / 2d;
-
-        startingX = (int) (boardMiddleX - (cellSize + gridWidth)
-                * halfNumSquaresX - gridWidth / 2);
-        endingX = (int) (boardMiddleX + (cellSize + gridWidth)
-                * halfNumSquaresX + gridWidth / 2);
-        startingY = (int) (boardMiddleY - (cellSize*1.25 + gridWidth)
-                * halfNumSquaresY - gridWidth / 2);
-        endingY = (int) (boardMiddleY + (cellSize*0.75 + gridWidth)
-                * halfNumSquaresY + gridWidth / 2);
-
-        paint.setTextSize(titleTextSize);
-
-        int textShiftYAll = centerText();
-        // static variables
-        sYAll = (int) (startingY - cellSize * 1.25);
-        titleStartYAll = (int) (sYAll + textPaddingSize + titleTextSize / 2 - textShiftYAll);
-        bodyStartYAll = (int) (titleStartYAll + textPaddingSize + titleTextSize
-                / 2 + bodyTextSize / 2);
-
-        titleWidthHighScore = (int) (paint.measureText(highScoreTitle));
-        titleWidthScore = (int) (paint.measureText(scoreTitle));
-        paint.setTextSize(bodyTextSize);
-        textShiftYAll = centerText();
-        eYAll = (int) (bodyStartYAll + textShiftYAll + bodyTextSize / 2 + textPaddingSize);
-
-        sYIcons = (startingY) - (int)(cellSize*1.4);
-        sXNewGame = ( startingX + (int)(cellSize*1.3));
-        resyncTime();
+    @Override
+    public void onRedo() {
+        if (shown == game) {
+            publish(false);
+        }
     }
 
-    private int centerText() {
-        return (int) ((paint.descent() + paint.ascent()) / 2);
+    @Override
+    public void onGameEnd(boolean won) {
     }
 
-    public GameView(Context context) {
-        super(context);
-        Resources resources = context.getResources();
-        // Loading resources
-        game = new Game(context, this);
-        try {
-            // Getting text values
-            headerText = resources.getString(R.string.header);
-            highScoreTitle = resources.getString(R.string.personal_best);
-            scoreTitle = resources.getString(R.string.score);
-            instructionsText = resources.getString(R.string.instructions);
-            winText = resources.getString(R.string.you_win);
-            loseText = resources.getString(R.string.game_over);
-            // Getting assets
-            backgroundRectangle = resources.getDrawable(R.drawable.background_rectangle);
-
-            cellRectangle[0] = resources.getDrawable(R.drawable.ic_2048_bg);
-            cellRectangle[1] = resources.getDrawable(R.drawable.ic_2048_black);
-            cellRectangle[2] = resources.getDrawable(R.drawable.ic_2048_gray);
-            cellRectangle[3] = resources.getDrawable(R.drawable.ic_2048_brown);
-            cellRectangle[4] = resources.getDrawable(R.drawable.ic_2048_pink);
-            cellRectangle[5] = resources.getDrawable(R.drawable.ic_2048_purple);
-            cellRectangle[6] = resources.getDrawable(R.drawable.ic_2048_blue);
-            cellRectangle[7] = resources.getDrawable(R.drawable.ic_2048_teal);
-            cellRectangle[8] = resources.getDrawable(R.drawable.ic_2048_green);
-            cellRectangle[9] = resources.getDrawable(R.drawable.ic_2048_yellow);
-            cellRectangle[10] = resources.getDrawable(R.drawable.ic_2048_orange);
-            cellRectangle[11] = resources.getDrawable(R.drawable.ic_2048_red);
-
-            newGameIcon = resources.getDrawable(R.drawable.ic_2048_new);
-
-            TEXT_PINK = resources.getColor(R.color.text_pink);
-            TEXT_WHITE = resources.getColor(R.color.text_white);
-            TEXT_BLACK = resources.getColor(R.color.text_black);
-            TEXT_BROWN = resources.getColor(R.color.text_brown);
-            this.setBackgroundColor(resources.getColor(R.color.background));
-        } catch (Exception e) {
-            System.out.println("Error getting assets?");
-        }
-        setOnTouchListener(new InputListener(this));
-        game.newGame();
+    @Override
+    public void onPersonalBest(String personalBest) {
+        SharedPreferences.Editor editor = PreferenceManager
+                .getDefaultSharedPreferences(getContext()).edit();
+        editor.putString(PERSONAL_BEST, personalBest);
+        editor.apply();
     }
-
 }
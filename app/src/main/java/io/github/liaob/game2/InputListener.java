@@ -2,24 +2,26 @@ package io.github.liaob.game2;
 
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
 
 public class InputListener implements View.OnTouchListener {
 
-    private static final int SWIPE_MIN_DISTANCE = 0;
+    // Pixels: a swipe must go at least SWIPE_MIN_DISTANCE, and moves when
+    // one touch event covers SWIPE_THRESHOLD_VELOCITY of it or it reaches
+    // MOVE_THRESHOLD
+    private static final int SWIPE_MIN_DISTANCE = 10;
     private static final int SWIPE_THRESHOLD_VELOCITY = 25;
     private static final int MOVE_THRESHOLD = 250;
-    private static final int RESET_STARTING = 10;
 
     private float x;
     private float y;
-    private float lastdx;
-    private float lastdy;
     private float previousX;
     private float previousY;
+    // Where the swipe in progress began: the touch, or the last move made
     private float startingX;
     private float startingY;
-    private int previousDirection = 1;
-    private int veryLastDirection = 1;
+    // The last move made by this touch, -1 before the first
+    private int lastDirection = -1;
     private boolean hasMoved = false;
 
     GameView mView;
@@ -39,74 +41,21 @@ public class InputListener implements View.OnTouchListener {
                 startingY = y;
                 previousX = x;
                 previousY = y;
-                lastdx = 0;
-                lastdy = 0;
+                lastDirection = -1;
                 hasMoved = false;
                 return true;
             case MotionEvent.ACTION_MOVE:
                 x = event.getX();
                 y = event.getY();
                 if (mView.game.isActive()) {
-                    float dx = x - previousX;
-                    if (Math.abs(lastdx + dx) < Math.abs(lastdx) + Math.abs(dx)
-                            && Math.abs(dx) > RESET_STARTING
-                            && Math.abs(x - startingX) > SWIPE_MIN_DISTANCE) {
+                    int direction = swipeDirection(x - previousX, y - previousY);
+                    if (direction != -1) {
+                        // Applied at once; the view queues its animation
+                        move(direction, event);
+                        lastDirection = direction;
+                        hasMoved = true;
                         startingX = x;
                         startingY = y;
-                        lastdx = dx;
-                        previousDirection = veryLastDirection;
-                    }
-                    if (lastdx == 0) {
-                        lastdx = dx;
-                    }
-                    float dy = y - previousY;
-                    if (Math.abs(lastdy + dy) < Math.abs(lastdy) + Math.abs(dy)
-                            && Math.abs(dy) > RESET_STARTING
-                            && Math.abs(y - startingY) > SWIPE_MIN_DISTANCE) {
-                        startingX = x;
-                        startingY = y;
-                        lastdy = dy;
-                        previousDirection = veryLastDirection;
-                    }
-                    if (lastdy == 0) {
-                        lastdy = dy;
-                    }
-                    if (pathMoved() > SWIPE_MIN_DISTANCE * SWIPE_MIN_DISTANCE) {
-                        boolean moved = false;
-                        if (((dy >= SWIPE_THRESHOLD_VELOCITY && previousDirection == 1) || y
-                                - startingY >= MOVE_THRESHOLD)
-                                && previousDirection % 2 != 0) {
-                            moved = true;
-                            previousDirection = previousDirection * 2;
-                            veryLastDirection = 2;
-                            mView.game.move(2);
-                        } else if (((dy <= -SWIPE_THRESHOLD_VELOCITY && previousDirection == 1) || y
-                                - startingY <= -MOVE_THRESHOLD)
-                                && previousDirection % 3 != 0) {
-                            moved = true;
-                            previousDirection = previousDirection * 3;
-                            veryLastDirection = 3;
-                            mView.game.move(0);
-                        } else if (((dx >= SWIPE_THRESHOLD_VELOCITY && previousDirection == 1) || x
-                                - startingX >= MOVE_THRESHOLD)
-                                && previousDirection % 5 != 0) {
-                            moved = true;
-                            previousDirection = previousDirection * 5;
-                            veryLastDirection = 5;
-                            mView.game.move(1);
-                        } else if (((dx <= -SWIPE_THRESHOLD_VELOCITY && previousDirection == 1) || x
-                                - startingX <= -MOVE_THRESHOLD)
-                                && previousDirection % 7 != 0) {
-                            moved = true;
-                            previousDirection = previousDirection * 7;
-                            veryLastDirection = 7;
-                            mView.game.move(3);
-                        }
-                        if (moved) {
-                            hasMoved = true;
-                            startingX = x;
-                            startingY = y;
-                        }
                     }
                 }
                 previousX = x;
@@ -115,18 +64,61 @@ public class InputListener implements View.OnTouchListener {
             case MotionEvent.ACTION_UP:
                 x = event.getX();
                 y = event.getY();
-                previousDirection = 1;
-                veryLastDirection = 1;
                 // "Menu" inputs
                 if (!hasMoved) {
                     if (iconPressed(mView.sXNewGame, mView.sYIcons)) {
-                        mView.game.newGame();
+                        // Holding the button picks the size of the new game
+                        boolean held = event.getEventTime() - event.getDownTime()
+                                >= ViewConfiguration.getLongPressTimeout();
+                        if (held && mView.boardSizeAction != null) {
+                            mView.boardSizeAction.run();
+                        } else {
+                            mView.game.newGame();
+                        }
                     }
                 }
         }
         return true;
     }
 
+    private void move(int direction, MotionEvent event) {
+        LatencyTracer tracer = mView.latencyTracer;
+        if (tracer == null) {
+            mView.game.move(direction);
+            return;
+        }
+        // Event times are uptime milliseconds, the nanoTime clock
+        tracer.moveStarted(event.getEventTime() * 1000000L);
+        long turns = mView.game.turns;
+        mView.game.move(direction);
+        tracer.moveEnded(mView.game.turns != turns);
+    }
+
+    /**
+     * The direction swiped since (startingX, startingY), given the distance
+     * (dx, dy) covered by the latest event, or -1 if it is no swipe yet. A
+     * quick flick turns at once, but repeating the last direction takes a
+     * full MOVE_THRESHOLD, so one flick spread over several events moves
+     * only once.
+     */
+    private int swipeDirection(float dx, float dy) {
+        float totalX = x - startingX;
+        float totalY = y - startingY;
+        boolean horizontal = Math.abs(totalX) > Math.abs(totalY);
+        float total = horizontal ? totalX : totalY;
+        float delta = horizontal ? dx : dy;
+        if (Math.abs(total) < SWIPE_MIN_DISTANCE) {
+            return -1;
+        }
+        int direction = horizontal ? (total > 0 ? 1 : 3) : (total > 0 ? 2 : 0);
+        boolean flick = direction != lastDirection && delta * total > 0
+                && Math.abs(delta) >= SWIPE_THRESHOLD_VELOCITY;
+        if (flick || Math.abs(total) >= MOVE_THRESHOLD) {
+            return direction;
+        }
+        return -1;
+    }
+
     private float pathMoved() {
         return (x - startingX) * (x - startingX) + (y - startingY)
                 * (y - startingY);
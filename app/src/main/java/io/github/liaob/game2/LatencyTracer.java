@@ -0,0 +1,126 @@
+package io.github.liaob.game2;
+
+import android.os.Build;
+import android.os.Trace;
+
+import java.io.IOException;
+
+/**
+ * Follows a swipe from its touch event to the screen: the touch, the start
+ * and end of the move it makes, the first frame drawn after it and the frame
+ * its animations finish on. Each stage is a {@link Trace} section, to read
+ * in systrace or Perfetto, and the latencies from the touch are kept in
+ * histograms for an in-app p50/p95/p99 summary.
+ *
+ * Only the latest move is followed: one made before the previous has
+ * settled takes over from it. Touches are stamped with
+ * MotionEvent.getEventTime, which is on the same monotonic clock as
+ * System.nanoTime. The renderer may report frames from its own thread, so
+ * every method locks this object.
+ */
+public class LatencyTracer {
+
+    // Up to 500ms, as a swipe takes two animations to settle
+    private static final int BUCKETS = 2000;
+
+    private final FrameHistogram touchToMove = new FrameHistogram("touch to move", BUCKETS);
+    private final FrameHistogram moveTimes = new FrameHistogram("move", BUCKETS);
+    private final FrameHistogram touchToFrame = new FrameHistogram("touch to frame", BUCKETS);
+    private final FrameHistogram touchToSettled = new FrameHistogram("touch to settled", BUCKETS);
+
+    // The move being followed, 0 when there is none
+    private long touchNanos;
+    private long moveStartNanos;
+    private long moveEndNanos;
+    private boolean framePending;
+
+    /**
+     * Called as the move for a touch at touchNanos starts.
+     */
+    public synchronized void moveStarted(long touchNanos) {
+        beginSection("Game.move");
+        moveStartNanos = System.nanoTime();
+        this.touchNanos = touchNanos;
+        touchToMove.record(moveStartNanos - touchNanos);
+    }
+
+    /**
+     * Called when the move is done; moved is whether it changed the board,
+     * as only then is there a frame to wait for.
+     */
+    public synchronized void moveEnded(boolean moved) {
+        moveEndNanos = System.nanoTime();
+        moveTimes.record(moveEndNanos - moveStartNanos);
+        endSection();
+        framePending = moved;
+        if (!moved) {
+            touchNanos = 0;
+        }
+    }
+
+    /**
+     * Called by the renderer when it has drawn a frame that started at
+     * frameStartNanos; moreFrames is whether animations are still running.
+     */
+    synchronized void frameDrawn(long frameStartNanos, boolean moreFrames) {
+        // Frames begun before the move ended may show the board before it
+        if (touchNanos == 0 || frameStartNanos < moveEndNanos) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (framePending) {
+            touchToFrame.record(now - touchNanos);
+            framePending = false;
+            mark("first frame");
+        }
+        if (!moreFrames) {
+            touchToSettled.record(now - touchNanos);
+            touchNanos = 0;
+            mark("settled");
+        }
+    }
+
+    public synchronized void clear() {
+        touchToMove.clear();
+        moveTimes.clear();
+        touchToFrame.clear();
+        touchToSettled.clear();
+        touchNanos = 0;
+    }
+
+    /**
+     * Writes one summary line per stage.
+     */
+    public synchronized void writeSummaryTo(Appendable out) throws IOException {
+        touchToMove.writeSummaryTo(out);
+        out.append('\n');
+        moveTimes.writeSummaryTo(out);
+        out.append('\n');
+        touchToFrame.writeSummaryTo(out);
+        out.append('\n');
+        touchToSettled.writeSummaryTo(out);
+        out.append('\n');
+    }
+
+    /**
+     * Trace.beginSection where the platform has it, from API 18.
+     */
+    static void beginSection(String name) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(name);
+        }
+    }
+
+    static void endSection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
+
+    // An empty section, as sync sections are all API 18 has to mark an
+    // instant with
+    private static void mark(String name) {
+        beginSection(name);
+        endSection();
+    }
+}
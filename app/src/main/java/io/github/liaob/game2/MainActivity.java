@@ -1,50 +1,80 @@
 package io.github.liaob.game2;
 
 import android.annotation.SuppressLint;
+import android.content.DialogInterface;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.os.Handler;
 import android.preference.PreferenceManager;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
 import android.view.KeyEvent;
+import android.view.MotionEvent;
 import android.view.Window;
 import android.widget.RelativeLayout;
 import com.google.android.gms.ads.AdRequest;
 import com.google.android.gms.ads.AdSize;
 import com.google.android.gms.ads.AdView;
 
+import java.io.File;
+import java.io.IOException;
+
 public class MainActivity extends AppCompatActivity {
 
+    private static final String TAG = "MainActivity";
+
     public GameView view;
-    public static final String WIDTH = "width";
-    public static final String HEIGHT = "height";
-    public static final String MOVES = "moves";
-    public static final String PERSONAL_BEST = "personal best";
-    public static final String GAME_STATE = "game state";
+    public static final String SAVE_FILE = "game.sav";
+    // Draw on a SurfaceView render thread rather than in GameView.onDraw
+    public static final String RENDER_THREAD = "render_thread";
+    // Cells per side of new games; holding the new game button, the menu key
+    // or the number keys 3 to 8 change it
+    public static final String BOARD_SIZE = "board_size";
+    // Time every frame; F then shows the timings and D writes them to a file
+    public static final String FRAME_STATS = "frame_stats";
+    // Trace swipes through to the screen; L logs the latencies
+    public static final String LATENCY_TRACE = "latency_trace";
+    // How much faster than live play P replays the game
+    private static final int REPLAY_SPEED = 8;
+    // Where versions before SaveStore kept the game, plus a "x y" key per cell
+    private static final String OLD_WIDTH = "width";
+    private static final String OLD_HEIGHT = "height";
+    private static final String OLD_MOVES = "moves";
+    private static final String OLD_PERSONAL_BEST = "personal best";
+    private static final String OLD_GAME_STATE = "game state";
+
+    private SaveStore saveStore;
+    // Set once the saved game is in view.game; changes are saved from then on
+    private boolean tracking = false;
+    private boolean destroyed = false;
+    private final Handler handler = new Handler();
+    private FrameStats frameStats;
+    private LatencyTracer latencyTracer;
+    private RelativeLayout layout;
+    private MoveRecorder recorder;
+    private ReplayPlayer replayPlayer;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        // First, so the startup times include everything below
+        StartupTimer startup = new StartupTimer();
         super.onCreate(savedInstanceState);
 
-        AdView adView = new AdView(this);
-        adView.setAdSize(AdSize.BANNER);
-        adView.setAdUnitId("ca-app-pub-1617721984588470/5625067599");
-
-        // Add the AdView to the view hierarchy. The view will have no size
-        // until the ad is loaded.
-        RelativeLayout layout = new RelativeLayout(this);
+        layout = new RelativeLayout(this);
         layout.setLayoutParams(new RelativeLayout.LayoutParams(RelativeLayout.LayoutParams.MATCH_PARENT,    RelativeLayout.LayoutParams.MATCH_PARENT));
-        // Create an ad request.
-        // get test ads on a physical device.
-        AdRequest adRequest = new AdRequest.Builder().build();
-
-        // Start loading the ad in the background.
-        adView.loadAd(adRequest);
 
         requestWindowFeature(Window.FEATURE_NO_TITLE);
         view = new GameView(getBaseContext());
-
         SharedPreferences settings = PreferenceManager
                 .getDefaultSharedPreferences(this);
+        int size = settings.getInt(BOARD_SIZE, Game.DEFAULT_SIZE);
+        if (size != view.game.getWidth()) {
+            // Before tracking, so the saved game is not replaced
+            view.game.newGame(size);
+        }
+        saveStore = ((GameApplication) getApplication()).getSaveStore();
+
         view.hasSaveState = settings.getBoolean("save_state", false);
 
         if (savedInstanceState != null) {
@@ -53,24 +83,82 @@ public class MainActivity extends AppCompatActivity {
             }
         }
 
+        if (settings.getBoolean(RENDER_THREAD, false)) {
+            GameSurfaceView surface = new GameSurfaceView(getBaseContext(),
+                    view.game.getWidth(), view.game.getHeight());
+            view.setSurface(surface);
+            layout.addView(surface);
+        }
+        if (settings.getBoolean(FRAME_STATS, false)) {
+            frameStats = new FrameStats();
+            frameStats.setRefreshRate(getWindowManager().getDefaultDisplay().getRefreshRate());
+            view.setFrameStats(frameStats);
+        }
+        if (settings.getBoolean(LATENCY_TRACE, false)) {
+            latencyTracer = new LatencyTracer();
+            view.setLatencyTracer(latencyTracer);
+        }
+        view.setStartupTimer(startup);
+        recorder = new MoveRecorder(view.game);
+        view.game.addListener(recorder);
+        replayPlayer = new ReplayPlayer(view);
+        view.setBoardSizeAction(new Runnable() {
+            @Override
+            public void run() {
+                showBoardSizeDialog();
+            }
+        });
+        // The ad is not needed for the board to come up
+        startup.setOnFirstFrame(new Runnable() {
+            @Override
+            public void run() {
+                loadAd();
+            }
+        });
+        layout.addView(view);
+
+        setContentView(layout);
+
+    }
+
+    private void loadAd() {
+        if (isFinishing()) {
+            return;
+        }
+        AdView adView = new AdView(this);
+        adView.setAdSize(AdSize.BANNER);
+        adView.setAdUnitId("ca-app-pub-1617721984588470/5625067599");
+
+        // Add the AdView to the view hierarchy. The view will have no size
+        // until the ad is loaded.
         RelativeLayout.LayoutParams adParams =
                 new RelativeLayout.LayoutParams(RelativeLayout.LayoutParams.WRAP_CONTENT,
                         RelativeLayout.LayoutParams.WRAP_CONTENT);
         adParams.addRule(RelativeLayout.ALIGN_PARENT_BOTTOM);
         adParams.addRule(RelativeLayout.CENTER_HORIZONTAL);
-
-        layout.addView(view);
         layout.addView(adView, adParams);
 
+        // Create an ad request.
+        // get test ads on a physical device.
+        AdRequest adRequest = new AdRequest.Builder().build();
 
-        setContentView(layout);
-
+        // Start loading the ad in the background.
+        adView.loadAd(adRequest);
     }
 
     @Override
     public boolean onKeyDown(int keyCode, KeyEvent event) {
-        if (keyCode == KeyEvent.KEYCODE_MENU) {
-            // Do nothing
+        if (replayPlayer.isShowing()) {
+            // Any key ends the replay, and does nothing else
+            replayPlayer.stop();
+            return true;
+        }
+        if (keyCode == KeyEvent.KEYCODE_P && recorder.canReplay()) {
+            replayPlayer.start(recorder.getSeed(), recorder.getMoves(),
+                    recorder.getLength(), REPLAY_SPEED);
+            return true;
+        } else if (keyCode == KeyEvent.KEYCODE_MENU) {
+            showBoardSizeDialog();
             return true;
         } else if (keyCode == KeyEvent.KEYCODE_DPAD_DOWN) {
             view.game.move(2);
@@ -84,10 +172,89 @@ public class MainActivity extends AppCompatActivity {
         } else if (keyCode == KeyEvent.KEYCODE_DPAD_RIGHT) {
             view.game.move(1);
             return true;
+        } else if (keyCode == KeyEvent.KEYCODE_U) {
+            view.game.undo();
+            return true;
+        } else if (keyCode == KeyEvent.KEYCODE_R) {
+            view.game.redo();
+            return true;
+        } else if (keyCode >= KeyEvent.KEYCODE_0 + PackedBoard.MIN_SIZE
+                && keyCode <= KeyEvent.KEYCODE_0 + PackedBoard.MAX_SIZE) {
+            chooseBoardSize(keyCode - KeyEvent.KEYCODE_0);
+            return true;
+        } else if (keyCode == KeyEvent.KEYCODE_F && frameStats != null) {
+            frameStats.setOverlayEnabled(!frameStats.isOverlayEnabled());
+            view.redraw();
+            return true;
+        } else if (keyCode == KeyEvent.KEYCODE_D && frameStats != null) {
+            dumpFrameStats();
+            return true;
+        } else if (keyCode == KeyEvent.KEYCODE_L && latencyTracer != null) {
+            logLatencies();
+            return true;
         }
         return super.onKeyDown(keyCode, event);
     }
 
+    private void showBoardSizeDialog() {
+        final int smallest = PackedBoard.MIN_SIZE;
+        String[] sizes = new String[PackedBoard.MAX_SIZE - smallest + 1];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = getString(R.string.board_size_item, smallest + i);
+        }
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.board_size)
+                .setSingleChoiceItems(sizes, view.game.getWidth() - smallest,
+                        new DialogInterface.OnClickListener() {
+                            @Override
+                            public void onClick(DialogInterface dialog, int which) {
+                                dialog.dismiss();
+                                chooseBoardSize(smallest + which);
+                            }
+                        })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    // Starts a size x size game, asking first when that ends one in progress
+    private void chooseBoardSize(final int size) {
+        if (size == view.game.getWidth()) {
+            return;
+        }
+        if (!view.game.isActive() || view.game.turns == 0) {
+            setBoardSize(size);
+            return;
+        }
+        new AlertDialog.Builder(this)
+                .setMessage(getString(R.string.discard_game, size))
+                .setPositiveButton(R.string.new_game, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        setBoardSize(size);
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    private void setBoardSize(int size) {
+        PreferenceManager.getDefaultSharedPreferences(this).edit()
+                .putInt(BOARD_SIZE, size).apply();
+        view.game.newGame(size);
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        if (replayPlayer.isShowing()) {
+            // A touch ends the replay rather than moving the hidden game
+            if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+                replayPlayer.stop();
+            }
+            return true;
+        }
+        return super.dispatchTouchEvent(event);
+    }
+
     @SuppressLint("MissingSuperCall")
     @Override
     public void onSaveInstanceState(Bundle savedInstanceState) {
@@ -97,29 +264,100 @@ public class MainActivity extends AppCompatActivity {
 
     protected void onPause() {
         super.onPause();
+        if (replayPlayer.isShowing()) {
+            replayPlayer.stop();
+        }
         save();
     }
 
-    private void save() {
-        SharedPreferences settings = PreferenceManager
-                .getDefaultSharedPreferences(this);
+    private void dumpFrameStats() {
+        File file = new File(getFilesDir(), FrameStats.FILE_NAME);
+        try {
+            frameStats.writeTo(file);
+            Log.i(TAG, "Frame stats written to " + file);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write " + file, e);
+        }
+    }
+
+    private void logLatencies() {
+        StringBuilder summary = new StringBuilder("Touch latencies\n");
+        try {
+            latencyTracer.writeSummaryTo(summary);
+        } catch (IOException e) {
+            // A StringBuilder does not throw
+        }
+        Log.i(TAG, summary.toString());
+    }
+
+    // Moves a game saved in the preferences by an older version into the
+    // store, once
+    private void migrateOldSave() {
+        SharedPreferences settings = PreferenceManager.getDefaultSharedPreferences(this);
+        if (!settings.contains(OLD_MOVES)) {
+            return;
+        }
+        int width = settings.getInt(OLD_WIDTH, Game.DEFAULT_SIZE);
+        int height = settings.getInt(OLD_HEIGHT, width);
         SharedPreferences.Editor editor = settings.edit();
-        Tile[][] field = view.game.grid.field;
-        editor.putInt(WIDTH, field.length);
-        editor.putInt(HEIGHT, field.length);
-        for (int xx = 0; xx < field.length; xx++) {
-            for (int yy = 0; yy < field[0].length; yy++) {
-                if (field[xx][yy] != null) {
-                    editor.putInt(xx + " " + yy, field[xx][yy].getValue());
-                } else {
-                    editor.putInt(xx + " " + yy, 0);
+        boolean valid = width >= PackedBoard.MIN_SIZE && width <= PackedBoard.MAX_SIZE
+                && height >= PackedBoard.MIN_SIZE && height <= PackedBoard.MAX_SIZE;
+        PackedBoard board = new PackedBoard(valid ? width : Game.DEFAULT_SIZE,
+                valid ? height : Game.DEFAULT_SIZE);
+        for (int xx = 0; xx < board.getWidth(); xx++) {
+            for (int yy = 0; yy < board.getHeight(); yy++) {
+                String key = xx + " " + yy;
+                int value = settings.getInt(key, 0);
+                if (valid && value > 0) {
+                    board.setExponent(xx, yy, Integer.numberOfTrailingZeros(value));
                 }
+                editor.remove(key);
             }
         }
-        editor.putString(MOVES, view.game.moves);
-        editor.putString(PERSONAL_BEST, view.game.personalBest);
-        editor.putInt(GAME_STATE, view.game.gameState);
-        editor.commit();
+        long turns = -1;
+        try {
+            turns = Long.parseLong(settings.getString(OLD_MOVES, "0"));
+        } catch (NumberFormatException e) {
+            valid = false;
+        }
+        if (valid && board.countEmpty() < board.getCells()) {
+            Game game = new Game(false);
+            game.restore(board, turns, settings.getInt(OLD_GAME_STATE, Game.GAME_NORMAL));
+            saveStore.save(game);
+        } else {
+            Log.w(TAG, "Dropped an unreadable game saved by an older version");
+        }
+        // The personal best was always kept under Game's own key too
+        editor.remove(OLD_WIDTH).remove(OLD_HEIGHT).remove(OLD_MOVES)
+                .remove(OLD_PERSONAL_BEST).remove(OLD_GAME_STATE).apply();
+    }
+
+    private void save() {
+        // Returns at once; the file is written in the background. Until the
+        // saved game is loaded, view.game is not worth saving over it.
+        if (tracking) {
+            saveStore.save(view.game);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        view.release();
+        if (isFinishing()) {
+            // Pooled bitmaps only help the activity that replaces this one
+            BitmapPool.getInstance().clear();
+        }
+        // The store outlives the activity and finishes its writes on its own
+        saveStore.untrack(view.game);
+        destroyed = true;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // Whatever the level; the pool only holds bitmaps no one draws
+        BitmapPool.getInstance().clear();
     }
 
     protected void onResume() {
@@ -128,25 +366,32 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void load() {
-        // Stopping all animations
-        view.game.aGrid.cancelAnimations();
-
-        SharedPreferences settings = PreferenceManager
-                .getDefaultSharedPreferences(this);
-        for (int xx = 0; xx < view.game.grid.field.length; xx++) {
-            for (int yy = 0; yy < view.game.grid.field[0].length; yy++) {
-                int value = settings.getInt(xx + " " + yy, -1);
-                if (value > 0) {
-                    view.game.grid.field[xx][yy] = new Tile(xx, yy, value);
-                } else if (value == 0) {
-                    view.game.grid.field[xx][yy] = null;
-                }
-
+        // The file is read on the store's thread, once per process
+        saveStore.preload(new Runnable() {
+            @Override
+            public void run() {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onSaveLoaded();
+                    }
+                });
             }
-        }
+        });
+    }
 
-        view.game.moves = settings.getString(MOVES, view.game.moves);
-        view.game.personalBest = settings.getString(PERSONAL_BEST, view.game.personalBest);
-        view.game.gameState = settings.getInt(GAME_STATE, view.game.gameState);
+    private void onSaveLoaded() {
+        if (destroyed) {
+            return;
+        }
+        migrateOldSave();
+        // A snapshot plus the moves journaled after it
+        if (saveStore.load(view.game)) {
+            view.reload();
+        }
+        if (!tracking) {
+            saveStore.track(view.game);
+            tracking = true;
+        }
     }
 }
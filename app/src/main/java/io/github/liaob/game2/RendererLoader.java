@@ -0,0 +1,95 @@
+package io.github.liaob.game2;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Process;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Builds {@link BoardRenderer}s on a background thread: loading their
+ * drawables and rendering their background, tile and overlay bitmaps takes
+ * long enough to hold up the first frame, or a frame after every layout
+ * change, if done where the board is drawn. The renderer is handed back on
+ * the thread that draws, which shows a placeholder until then.
+ *
+ * Only the newest renderer asked for is handed back; one finished after
+ * another was asked for gives its bitmaps back to the {@link BitmapPool}. Call {@link #load} on the handler's
+ * thread.
+ */
+public class RendererLoader {
+
+    public interface Callback {
+        /**
+         * Called on the handler's thread with the renderer last asked for.
+         */
+        void onRendererLoaded(BoardRenderer renderer);
+    }
+
+    // One thread for every view, so views starting together don't compete
+    // with each other for cores
+    private static final ExecutorService executor =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "BoardAssets");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private final Context context;
+    private final Handler handler;
+    private final Callback callback;
+    // Bumped by every load, so results of earlier ones can be told apart
+    private int generation = 0;
+
+    public RendererLoader(Context context, Handler handler, Callback callback) {
+        this.context = context;
+        this.handler = handler;
+        this.callback = callback;
+    }
+
+    /**
+     * Builds a renderer for a numSquaresX x numSquaresY board on a
+     * width x height view. Only its layout is computed unless render is set,
+     * for views that draw nothing themselves.
+     */
+    public void load(final int numSquaresX, final int numSquaresY, final int width,
+                     final int height, final boolean render) {
+        final int requested = ++generation;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                final BoardRenderer renderer =
+                        new BoardRenderer(context, numSquaresX, numSquaresY);
+                if (render) {
+                    renderer.setSize(width, height);
+                } else {
+                    renderer.getLayout(width, height);
+                }
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (requested == generation) {
+                            callback.onRendererLoaded(renderer);
+                        } else {
+                            // Its bitmaps can still serve the next one
+                            renderer.release();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drops the renderer being built, if any.
+     */
+    public void cancel() {
+        generation++;
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.liaob.game2;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.SystemClock;
+
+/**
+ * Shows a recorded game on a {@link GameView}, speed times as fast as live
+ * play: one move every {@link Game#MOVE_ANIMATION_TIME} / speed. A
+ * {@link Replay} works the moves out and the view shows the result without
+ * animations, so at high speeds a frame jumps straight past every move made
+ * since the one before.
+ */
+public class ReplayPlayer implements Handler.Callback {
+
+    private static final int MSG_STEP = 0;
+    private static final long FRAME_MILLIS = 16;
+
+    private final GameView view;
+    private final Handler handler = new Handler(Looper.getMainLooper(), this);
+    private final Replay replay = new Replay();
+    // Headless, so the view shows each position as it is
+    private final Game display = new Game(false);
+
+    private byte[] moves;
+    private int length;
+    private int position;
+    private int speed;
+    private long startMillis;
+    // From start until stop, including after the last move
+    private boolean showing = false;
+
+    public ReplayPlayer(GameView view) {
+        this.view = view;
+    }
+
+    /**
+     * Plays the game started from seed with the first length moves, replacing
+     * any replay in progress. Must be called on the main thread.
+     */
+    public void start(long seed, byte[] moves, int length, int speed) {
+        handler.removeMessages(MSG_STEP);
+        this.moves = moves;
+        this.length = length;
+        this.speed = speed;
+        position = 0;
+        replay.start(seed);
+        display.personalBest = view.game.personalBest;
+        startMillis = SystemClock.uptimeMillis();
+        showing = true;
+        show();
+        handler.sendEmptyMessageDelayed(MSG_STEP, FRAME_MILLIS);
+    }
+
+    /**
+     * Stops the replay and shows the game being played again.
+     */
+    public void stop() {
+        handler.removeMessages(MSG_STEP);
+        showing = false;
+        view.reload();
+    }
+
+    /**
+     * Whether a replay is on the view, playing or finished.
+     */
+    public boolean isShowing() {
+        return showing;
+    }
+
+    public boolean isPlaying() {
+        return handler.hasMessages(MSG_STEP);
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        if (msg.what != MSG_STEP) {
+            return false;
+        }
+        long elapsedNanos = (SystemClock.uptimeMillis() - startMillis) * 1000000L;
+        long due = Math.min(length, elapsedNanos * speed / Game.MOVE_ANIMATION_TIME);
+        while (position < due) {
+            replay.move(moves[position++]);
+        }
+        show();
+        if (position < length && replay.isActive()) {
+            handler.sendEmptyMessageDelayed(MSG_STEP, FRAME_MILLIS);
+        }
+        return true;
+    }
+
+    private void show() {
+        display.restore(replay.board, replay.turns, replay.gameState);
+        view.show(display);
+    }
+}
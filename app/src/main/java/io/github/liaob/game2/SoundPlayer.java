@@ -0,0 +1,101 @@
+package io.github.liaob.game2;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.media.AudioManager;
+import android.media.SoundPool;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.os.Process;
+import android.provider.Settings;
+import android.util.SparseIntArray;
+
+/**
+ * Plays short raw samples on a dedicated audio thread. Samples are decoded
+ * once up front, and the stream volume is cached and refreshed only when the
+ * system settings change, so {@link #play(int)} just posts a pooled message
+ * and never blocks the caller.
+ */
+public class SoundPlayer implements Handler.Callback {
+
+    private static final int MAX_STREAMS = 4;
+
+    private static final int MSG_LOAD = 0;
+    private static final int MSG_PLAY = 1;
+    private static final int MSG_UPDATE_VOLUME = 2;
+    private static final int MSG_RELEASE = 3;
+
+    private final Context mContext;
+    private final AudioManager audioManager;
+    private final SoundPool soundPool;
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final ContentObserver volumeObserver;
+
+    // Only touched on the audio thread
+    private final SparseIntArray soundIds = new SparseIntArray();
+    private float volumeRatio;
+
+    public SoundPlayer(Context context, int... rawIds) {
+        mContext = context.getApplicationContext();
+        audioManager = (AudioManager) mContext.getSystemService(Context.AUDIO_SERVICE);
+        soundPool = new SoundPool(MAX_STREAMS, AudioManager.STREAM_MUSIC, 0);
+
+        thread = new HandlerThread("SoundPlayer", Process.THREAD_PRIORITY_AUDIO);
+        thread.start();
+        handler = new Handler(thread.getLooper(), this);
+
+        // Volume keys and the volume panel both write to system settings
+        volumeObserver = new ContentObserver(handler) {
+            @Override
+            public void onChange(boolean selfChange) {
+                handler.sendEmptyMessage(MSG_UPDATE_VOLUME);
+            }
+        };
+        mContext.getContentResolver().registerContentObserver(
+                Settings.System.CONTENT_URI, true, volumeObserver);
+
+        handler.sendEmptyMessage(MSG_UPDATE_VOLUME);
+        for (int rawId : rawIds) {
+            handler.obtainMessage(MSG_LOAD, rawId, 0).sendToTarget();
+        }
+    }
+
+    public void play(int rawId) {
+        handler.obtainMessage(MSG_PLAY, rawId, 0).sendToTarget();
+    }
+
+    public void release() {
+        mContext.getContentResolver().unregisterContentObserver(volumeObserver);
+        handler.sendEmptyMessage(MSG_RELEASE);
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        switch (msg.what) {
+            case MSG_LOAD:
+                if (soundIds.get(msg.arg1) == 0) {
+                    soundIds.put(msg.arg1, soundPool.load(mContext, msg.arg1, 1));
+                }
+                return true;
+            case MSG_PLAY:
+                int soundId = soundIds.get(msg.arg1);
+                if (soundId != 0 && volumeRatio > 0) {
+                    soundPool.play(soundId, volumeRatio, volumeRatio, 1, 0, 1);
+                }
+                return true;
+            case MSG_UPDATE_VOLUME:
+                float maxVolume = audioManager.getStreamMaxVolume(AudioManager.STREAM_MUSIC);
+                float currentVolume = audioManager.getStreamVolume(AudioManager.STREAM_MUSIC);
+                volumeRatio = maxVolume > 0 ? currentVolume / maxVolume : 0;
+                return true;
+            case MSG_RELEASE:
+                soundPool.release();
+                thread.quit();
+                return true;
+            default:
+                return false;
+        }
+    }
+}
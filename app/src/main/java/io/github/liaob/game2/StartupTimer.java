@@ -0,0 +1,68 @@
+package io.github.liaob.game2;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+/**
+ * Times a cold start from the activity's onCreate: to the first frame on
+ * screen, which may be the placeholder board, and to the first frame drawn
+ * with the board's real assets, from when the game is fully usable. Both
+ * are logged, and work kept off the critical path, like loading the ad, can
+ * wait for the first frame.
+ *
+ * Frames may be reported from the render thread; the first-frame action
+ * always runs on the main thread.
+ */
+public class StartupTimer {
+
+    private static final String TAG = "StartupTimer";
+
+    private final long startNanos = System.nanoTime();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Runnable onFirstFrame;
+    private long firstFrameNanos = -1;
+    private long interactiveNanos = -1;
+
+    /**
+     * Runs action on the main thread once the first frame is drawn.
+     */
+    public synchronized void setOnFirstFrame(Runnable action) {
+        onFirstFrame = action;
+    }
+
+    /**
+     * Called whenever a frame is drawn; loaded is whether it was drawn with
+     * the real assets rather than the placeholder.
+     */
+    synchronized void frameDrawn(boolean loaded) {
+        if (firstFrameNanos == -1) {
+            firstFrameNanos = System.nanoTime() - startNanos;
+            Log.i(TAG, "First frame after " + firstFrameNanos / 1000000 + "ms");
+            if (onFirstFrame != null) {
+                // After this frame is out, not as part of it
+                mainHandler.post(onFirstFrame);
+                onFirstFrame = null;
+            }
+        }
+        if (loaded && interactiveNanos == -1) {
+            interactiveNanos = System.nanoTime() - startNanos;
+            Log.i(TAG, "Interactive after " + interactiveNanos / 1000000 + "ms");
+        }
+    }
+
+    /**
+     * Nanoseconds from onCreate to the first frame, or -1 before it.
+     */
+    public synchronized long getTimeToFirstFrame() {
+        return firstFrameNanos;
+    }
+
+    /**
+     * Nanoseconds from onCreate to the first frame with the real assets, or
+     * -1 before it.
+     */
+    public synchronized long getTimeToInteractive() {
+        return interactiveNanos;
+    }
+}
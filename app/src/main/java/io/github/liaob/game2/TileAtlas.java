@@ -0,0 +1,168 @@
+package io.github.liaob.game2;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+/**
+ * Tile bitmaps for every exponent, rendered on first use into slots of one
+ * shared atlas bitmap. The atlas holds as many slots as fit in
+ * {@link #BUDGET_BYTES}, so large cells on tablets get fewer slots, and when
+ * it is full the least recently drawn tile gives its slot up. The atlas comes
+ * from, and goes back to, the {@link BitmapPool}.
+ *
+ * Exponents with their own drawable use it; higher ones are drawn as a plain
+ * tile with the value written on it, up to {@link PackedBoard#MAX_EXPONENT}.
+ * Anything past that shares one plain tile labelled {@link #GENERIC_LABEL}.
+ */
+public class TileAtlas {
+
+    static final int BUDGET_BYTES = 4 * 1024 * 1024;
+    // Room for the tiles a typical frame draws, so they rarely evict each other
+    static final int MIN_SLOTS = 8;
+    static final int MAX_SLOTS = BitBoard.MAX_EXPONENT;
+    static final String GENERIC_LABEL = "2\u207F";
+    // Where exponents past the largest a board holds are looked up
+    private static final int GENERIC = PackedBoard.MAX_EXPONENT + 1;
+
+    private final Drawable[] tileDrawables;
+    private final Drawable plainTile;
+    private final int textColor;
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint bitmapPaint = new Paint();
+
+    private Bitmap atlas = null;
+    private Canvas atlasCanvas;
+    private int cellSize;
+    private float textSize;
+    private int columns;
+
+    // Slot of each exponent, or -1, and the reverse mapping
+    private final int[] slotOfExponent = new int[GENERIC + 1];
+    private int[] exponentInSlot = new int[0];
+    private long[] lastUsed = new long[0];
+    private long clock = 0;
+
+    private final Rect src = new Rect();
+    private final Rect dst = new Rect();
+
+    /**
+     * tileDrawables[exponent] is the look of each exponent that has one;
+     * plainTile, tinted with tileColor, backs the rest.
+     */
+    public TileAtlas(Drawable[] tileDrawables, Drawable plainTile,
+                     int tileColor, int textColor) {
+        this.tileDrawables = tileDrawables;
+        this.plainTile = plainTile;
+        this.textColor = textColor;
+        if (plainTile != null) {
+            plainTile.setColorFilter(tileColor, PorterDuff.Mode.SRC_IN);
+        }
+        bitmapPaint.setFilterBitmap(true);
+        paint.setTextAlign(Paint.Align.CENTER);
+    }
+
+    /**
+     * Sizes the atlas for cellSize tiles and forgets every rendered tile.
+     */
+    public void setCellSize(int cellSize, float textSize) {
+        this.cellSize = cellSize;
+        this.textSize = textSize;
+        int cellBytes = Math.max(1, cellSize * cellSize * 4);
+        int slots = Math.max(MIN_SLOTS, Math.min(MAX_SLOTS, BUDGET_BYTES / cellBytes));
+        columns = (int) Math.ceil(Math.sqrt(slots));
+        int rows = (slots + columns - 1) / columns;
+        BitmapPool pool = BitmapPool.getInstance();
+        pool.put(atlas);
+        // Tiles have rounded corners, so the atlas keeps its alpha
+        atlas = pool.get(columns * cellSize, rows * cellSize, Bitmap.Config.ARGB_8888);
+        atlasCanvas = new Canvas(atlas);
+        exponentInSlot = new int[slots];
+        lastUsed = new long[slots];
+        for (int i = 0; i < slots; i++) {
+            exponentInSlot[i] = -1;
+        }
+        for (int i = 0; i < slotOfExponent.length; i++) {
+            slotOfExponent[i] = -1;
+        }
+    }
+
+    /**
+     * Gives the atlas back to the {@link BitmapPool}; setCellSize makes a
+     * new one before the next draw.
+     */
+    public void release() {
+        BitmapPool.getInstance().put(atlas);
+        atlas = null;
+        atlasCanvas = null;
+    }
+
+    public void draw(Canvas canvas, int exponent, int left, int top,
+                     int right, int bottom) {
+        int slot = obtainSlot(exponent);
+        slotBounds(slot, src);
+        dst.set(left, top, right, bottom);
+        canvas.drawBitmap(atlas, src, dst, bitmapPaint);
+    }
+
+    private int obtainSlot(int exponent) {
+        exponent = Math.min(exponent, GENERIC);
+        int slot = slotOfExponent[exponent];
+        if (slot == -1) {
+            // A free slot, or else the least recently used one
+            for (int i = 0; i < exponentInSlot.length; i++) {
+                if (exponentInSlot[i] == -1) {
+                    slot = i;
+                    break;
+                }
+                if (slot == -1 || lastUsed[i] < lastUsed[slot]) {
+                    slot = i;
+                }
+            }
+            if (exponentInSlot[slot] != -1) {
+                slotOfExponent[exponentInSlot[slot]] = -1;
+            }
+            render(exponent, slot);
+            exponentInSlot[slot] = exponent;
+            slotOfExponent[exponent] = slot;
+        }
+        lastUsed[slot] = ++clock;
+        return slot;
+    }
+
+    private void render(int exponent, int slot) {
+        slotBounds(slot, dst);
+        atlasCanvas.save();
+        atlasCanvas.clipRect(dst);
+        atlasCanvas.drawColor(0, PorterDuff.Mode.CLEAR);
+        if (exponent < tileDrawables.length) {
+            tileDrawables[exponent].setBounds(dst.left, dst.top, dst.right, dst.bottom);
+            tileDrawables[exponent].draw(atlasCanvas);
+        } else {
+            plainTile.setBounds(dst.left, dst.top, dst.right, dst.bottom);
+            plainTile.draw(atlasCanvas);
+            String value = exponent == GENERIC ? GENERIC_LABEL
+                    : String.valueOf(1 << exponent);
+            paint.setColor(textColor);
+            paint.setTextSize(textSize);
+            // Long values shrink to fit the tile
+            float width = paint.measureText(value);
+            if (width > cellSize * 0.8f) {
+                paint.setTextSize(textSize * cellSize * 0.8f / width);
+            }
+            float centerY = (dst.top + dst.bottom) / 2f
+                    - (paint.descent() + paint.ascent()) / 2;
+            atlasCanvas.drawText(value, (dst.left + dst.right) / 2f, centerY, paint);
+        }
+        atlasCanvas.restore();
+    }
+
+    private void slotBounds(int slot, Rect out) {
+        int left = slot % columns * cellSize;
+        int top = slot / columns * cellSize;
+        out.set(left, top, left + cellSize, top + cellSize);
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.liaob.game2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The packed engine on the same boards as {@link GameMoveBenchmark}, for
+ * comparison. Boards are plain longs, so no restore is needed.
+ */
+@State(Scope.Thread)
+public class BitBoardBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    @Param({BoardSamples.EARLY, BoardSamples.NEAR_FULL})
+    public String phase;
+
+    @Param({"0", "1", "2", "3"})
+    public int direction;
+
+    private long[] boards;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void sampleBoards() {
+        boards = BoardSamples.sample(phase, SAMPLES, 2048);
+    }
+
+    @Benchmark
+    public long move() {
+        long board = boards[next];
+        next = (next + 1) & (SAMPLES - 1);
+        return BitBoard.move(board, direction);
+    }
+
+    @Benchmark
+    public boolean movesAvailable() {
+        long board = boards[next];
+        next = (next + 1) & (SAMPLES - 1);
+        return BitBoard.movesAvailable(board);
+    }
+}
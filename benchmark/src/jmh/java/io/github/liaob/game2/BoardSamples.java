@@ -0,0 +1,59 @@
+package io.github.liaob.game2;
+
+import java.util.Random;
+
+/**
+ * Reproducible boards taken from random play, so benchmarks run on the
+ * positions real games pass through rather than on hand-made ones.
+ */
+public final class BoardSamples {
+
+    public static final String EARLY = "EARLY";
+    public static final String NEAR_FULL = "NEAR_FULL";
+
+    private BoardSamples() {
+    }
+
+    /**
+     * Boards from the opening (up to 5 tiles) or from the end game
+     * (13 to 15 tiles, with at least one legal move).
+     */
+    public static long[] sample(String phase, int count, long seed) {
+        int minTiles = EARLY.equals(phase) ? 2 : 13;
+        int maxTiles = EARLY.equals(phase) ? 5 : 15;
+        Random random = new Random(seed);
+        long[] boards = new long[count];
+        int found = 0;
+        while (found < count) {
+            long board = spawn(spawn(0, random), random);
+            while (BitBoard.movesAvailable(board) && found < count) {
+                int tiles = BitBoard.CELLS - BitBoard.countEmpty(board);
+                if (tiles >= minTiles && tiles <= maxTiles && random.nextInt(4) == 0) {
+                    boards[found++] = board;
+                }
+                long moved = BitBoard.move(board, random.nextInt(4));
+                if (moved != board) {
+                    board = spawn(moved, random);
+                }
+            }
+        }
+        return boards;
+    }
+
+    public static Game load(long board) {
+        Game game = new Game();
+        game.newGame();
+        BitBoard.toGrid(board, game.grid);
+        return game;
+    }
+
+    private static long spawn(long board, Random random) {
+        int target = random.nextInt(BitBoard.countEmpty(board));
+        for (int index = 0; index < BitBoard.CELLS; index++) {
+            if (BitBoard.getExponent(board, index) == 0 && target-- == 0) {
+                return BitBoard.spawn(board, index, 1);
+            }
+        }
+        return board;
+    }
+}
@@ -0,0 +1,78 @@
+package io.github.liaob.game2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Move and loss-check cost as the board grows. 4x4 boards go through the
+ * BitBoard tables and the other sizes through PackedBoard's line slides;
+ * Game.move adds the tile bookkeeping on top. Game.move needs a fresh board
+ * each time, so it includes a restore; subtract {@link #restoreOnly()}.
+ */
+@State(Scope.Thread)
+public class BoardSizeBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    @Param({"3", "4", "5", "6", "8"})
+    public int size;
+
+    private PackedBoard[] boards;
+    private PackedBoard work;
+    private Game game;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void sampleBoards() {
+        // Positions from random play, so every phase of a game is covered
+        SplitMix64 random = new SplitMix64(2048);
+        Game player = new Game(false, random.split());
+        player.newGame(size);
+        boards = new PackedBoard[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            while (!player.isActive() || !player.getPackedBoard().movesAvailable()) {
+                player.newGame();
+            }
+            player.move(random.nextInt(4));
+            boards[i] = new PackedBoard(size, size);
+            boards[i].copyFrom(player.getPackedBoard());
+        }
+        work = new PackedBoard(size, size);
+        game = new Game(false);
+        game.newGame(size);
+    }
+
+    private PackedBoard nextBoard() {
+        PackedBoard board = boards[next];
+        next = (next + 1) & (SAMPLES - 1);
+        return board;
+    }
+
+    @Benchmark
+    public boolean move() {
+        work.copyFrom(nextBoard());
+        return work.move(next & 3);
+    }
+
+    @Benchmark
+    public boolean movesAvailable() {
+        return nextBoard().movesAvailable();
+    }
+
+    @Benchmark
+    public Game gameMove() {
+        game.restore(nextBoard(), 0, Game.GAME_NORMAL);
+        game.move(next & 3);
+        return game;
+    }
+
+    @Benchmark
+    public Game restoreOnly() {
+        game.restore(nextBoard(), 0, Game.GAME_NORMAL);
+        return game;
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.liaob.game2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Game.move per direction. Every invocation starts from a fresh sample
+ * board, restored outside the timed region; the gc profiler still counts
+ * the restore, so compare allocation against {@link #restoreOnly()}.
+ */
+@State(Scope.Thread)
+public class GameMoveBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    @Param({BoardSamples.EARLY, BoardSamples.NEAR_FULL})
+    public String phase;
+
+    @Param({"0", "1", "2", "3"})
+    public int direction;
+
+    private long[] boards;
+    private int next;
+    private Game game;
+
+    @Setup(Level.Trial)
+    public void sampleBoards() {
+        boards = BoardSamples.sample(phase, SAMPLES, 2048);
+        game = BoardSamples.load(boards[0]);
+    }
+
+    @Setup(Level.Invocation)
+    public void restoreBoard() {
+        game.aGrid.cancelAnimations();
+        game.gameState = Game.GAME_NORMAL;
+        BitBoard.toGrid(boards[next], game.grid);
+        next = (next + 1) & (SAMPLES - 1);
+    }
+
+    @Benchmark
+    public Game move() {
+        game.move(direction);
+        return game;
+    }
+
+    @Benchmark
+    public Game restoreOnly() {
+        return game;
+    }
+}
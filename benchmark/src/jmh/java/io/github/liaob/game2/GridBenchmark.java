@@ -0,0 +1,68 @@
+package io.github.liaob.game2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+
+/**
+ * The read-only board queries that run on every move: free-cell lookups
+ * and the loss check. Cycles through the sample boards without changing
+ * them, so no per-invocation setup is needed.
+ */
+@State(Scope.Thread)
+public class GridBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    @Param({BoardSamples.EARLY, BoardSamples.NEAR_FULL})
+    public String phase;
+
+    private Game[] games;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void sampleBoards() {
+        long[] boards = BoardSamples.sample(phase, SAMPLES, 4096);
+        games = new Game[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            games[i] = BoardSamples.load(boards[i]);
+        }
+    }
+
+    private Game nextGame() {
+        Game game = games[next];
+        next = (next + 1) & (SAMPLES - 1);
+        return game;
+    }
+
+    @Benchmark
+    public Cell randomAvailableCell() {
+        return nextGame().grid.randomAvailableCell();
+    }
+
+    @Benchmark
+    public ArrayList<Cell> getAvailableCells() {
+        return nextGame().grid.getAvailableCells();
+    }
+
+    @Benchmark
+    public boolean tileMatchesAvailable() {
+        return nextGame().tileMatchesAvailable();
+    }
+
+    @Benchmark
+    public boolean movesAvailable() {
+        return nextGame().movesAvailable();
+    }
+
+    @Benchmark
+    public long bitBoardMovesAvailable() {
+        Game game = nextGame();
+        return BitBoard.movesAvailable(game.getBoard()) ? 1 : 0;
+    }
+}
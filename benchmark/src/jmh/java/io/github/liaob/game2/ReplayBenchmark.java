@@ -0,0 +1,46 @@
+package io.github.liaob.game2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Headless replay throughput, one move per invocation, including the spawn
+ * and the end-of-game check. A game that ends is started again from the
+ * next seed, as when replaying an archive.
+ */
+@State(Scope.Thread)
+public class ReplayBenchmark {
+
+    private static final int MOVES = 1024;
+
+    private byte[] moves;
+    private int next;
+    private long seed;
+    private Replay replay;
+
+    @Setup(Level.Trial)
+    public void recordMoves() {
+        Random random = new Random(2048);
+        moves = new byte[MOVES];
+        for (int i = 0; i < MOVES; i++) {
+            moves[i] = (byte) random.nextInt(4);
+        }
+        replay = new Replay();
+        replay.start(seed);
+    }
+
+    @Benchmark
+    public long move() {
+        if (!replay.isActive()) {
+            replay.start(++seed);
+        }
+        replay.move(moves[next]);
+        next = (next + 1) & (MOVES - 1);
+        return replay.board;
+    }
+}
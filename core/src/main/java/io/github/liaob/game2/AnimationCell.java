@@ -0,0 +1,36 @@
+package io.github.liaob.game2;
+
+/**
+ * One animation of an {@link AnimationGrid}, as listed by
+ * {@link AnimationGrid#getAnimationCell(int, int)}. It is a view of a slot
+ * in the grid's arrays rather than a copy, so it shows whatever animation
+ * is in that slot now. extras holds the cell a move animation slides in
+ * from, as it did when animations were objects of their own.
+ */
+public class AnimationCell extends Cell {
+    public final int[] extras = new int[2];
+    private final AnimationGrid grid;
+    private final int index;
+
+    AnimationCell(AnimationGrid grid, int x, int y, int index) {
+        super(x, y);
+        this.grid = grid;
+        this.index = index;
+    }
+
+    public int getAnimationType() {
+        return grid.getAnimationType(getX(), getY(), index);
+    }
+
+    public boolean animationDone() {
+        return grid.isDone(getX(), getY(), index);
+    }
+
+    public double getPercentageDone() {
+        return grid.getPercentageDone(getX(), getY(), index);
+    }
+
+    public boolean isActive() {
+        return grid.isActive(getX(), getY(), index);
+    }
+}
@@ -0,0 +1,284 @@
+package io.github.liaob.game2;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Running animations, kept in preallocated parallel arrays instead of one
+ * object per animation. Every cell owns a fixed block of
+ * {@link #SLOTS_PER_CELL} records and one extra block holds the global
+ * animations at (-1, -1). Finished records are compacted out of their block
+ * in place, so starting, ticking and reading animations never allocates.
+ *
+ * Animations of a cell are read by their position within the cell, from 0
+ * (oldest) to {@link #getAnimationCount(int, int)} - 1 (newest), or as a
+ * list of {@link AnimationCell} views through
+ * {@link #getAnimationCell(int, int)}, as before the arrays.
+ */
+public class AnimationGrid {
+
+    public static final int SLOTS_PER_CELL = 4;
+
+    private final int width;
+    private final int height;
+
+    private final int[] counts;
+    private final int[] types;
+    private final int[] fromX;
+    private final int[] fromY;
+    private final long[] elapsed;
+    private final long[] durations;
+    private final long[] delays;
+
+    // One bit per cell with animations, numbered y * width + x as in Grid
+    private long animatedCells = 0;
+
+    int activeAnimations = 0;
+    boolean oneMoreFrame = false;
+
+    // The lists getAnimationCell returns, made on first use
+    private CellView[] cellViews;
+
+    public AnimationGrid(int x, int y) {
+        width = x;
+        height = y;
+        int blocks = x * y + 1;
+        counts = new int[blocks];
+        int slots = blocks * SLOTS_PER_CELL;
+        types = new int[slots];
+        fromX = new int[slots];
+        fromY = new int[slots];
+        elapsed = new long[slots];
+        durations = new long[slots];
+        delays = new long[slots];
+    }
+
+    public void startAnimation(int x, int y, int animationType, long length,
+                               long delay, int[] extras) {
+        startAnimation(x, y, animationType, length, delay,
+                extras == null ? x : extras[0], extras == null ? y : extras[1]);
+    }
+
+    /**
+     * Starts an animation on cell (x, y), or a global one when both are -1.
+     * A move animation slides the tile in from (fromX, fromY).
+     */
+    public void startAnimation(int x, int y, int animationType, long length,
+                               long delay, int fromX, int fromY) {
+        int block = block(x, y);
+        if (counts[block] == SLOTS_PER_CELL) {
+            // Full block: the oldest animation gives way
+            remove(block, 0);
+            activeAnimations = activeAnimations - 1;
+        }
+        int slot = block * SLOTS_PER_CELL + counts[block];
+        types[slot] = animationType;
+        this.fromX[slot] = fromX;
+        this.fromY[slot] = fromY;
+        elapsed[slot] = 0;
+        durations[slot] = length;
+        delays[slot] = delay;
+        counts[block]++;
+        activeAnimations = activeAnimations + 1;
+        if (block < width * height) {
+            animatedCells |= 1L << block;
+        }
+    }
+
+    public void tickAll(long timeElapsed) {
+        // Only cells with animations are visited
+        for (long cells = animatedCells; cells != 0; cells &= cells - 1) {
+            int block = Long.numberOfTrailingZeros(cells);
+            if (tick(block, timeElapsed) == 0) {
+                animatedCells &= ~(1L << block);
+            }
+        }
+        tick(width * height, timeElapsed);
+    }
+
+    private int tick(int block, long timeElapsed) {
+        int first = block * SLOTS_PER_CELL;
+        int kept = 0;
+        for (int i = 0; i < counts[block]; i++) {
+            int slot = first + i;
+            elapsed[slot] += timeElapsed;
+            if (durations[slot] + delays[slot] < elapsed[slot]) {
+                activeAnimations = activeAnimations - 1;
+            } else {
+                if (kept != i) {
+                    copy(slot, first + kept);
+                }
+                kept++;
+            }
+        }
+        counts[block] = kept;
+        return kept;
+    }
+
+    public boolean isAnimationActive() {
+        if (activeAnimations != 0) {
+            oneMoreFrame = true;
+            return true;
+        } else if (oneMoreFrame) {
+            oneMoreFrame = false;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Whether any animation is pending or running, without the extra frame
+     * {@link #isAnimationActive()} asks for after the last one ends.
+     */
+    public boolean hasAnimations() {
+        return activeAnimations != 0;
+    }
+
+    /**
+     * Cells that have animations, pending or running, as a bitmask with one
+     * bit per cell numbered {@code y * width + x}. Global animations are not
+     * included.
+     */
+    public long getAnimatedCells() {
+        return animatedCells;
+    }
+
+    public int getAnimationCount(int x, int y) {
+        return counts[block(x, y)];
+    }
+
+    public int getAnimationType(int x, int y, int i) {
+        return types[slot(x, y, i)];
+    }
+
+    public boolean isActive(int x, int y, int i) {
+        int slot = slot(x, y, i);
+        return elapsed[slot] >= delays[slot];
+    }
+
+    public double getPercentageDone(int x, int y, int i) {
+        int slot = slot(x, y, i);
+        return Math.max(0, 1.0 * (elapsed[slot] - delays[slot]) / durations[slot]);
+    }
+
+    boolean isDone(int x, int y, int i) {
+        int slot = slot(x, y, i);
+        return durations[slot] + delays[slot] < elapsed[slot];
+    }
+
+    /**
+     * The animations of cell (x, y), or the global ones at (-1, -1), oldest
+     * first: a read-only list backed by this grid, so it follows the
+     * animations as they start and end. The lists and their cells are made
+     * the first time they are asked for; the index accessors never allocate.
+     */
+    public List<AnimationCell> getAnimationCell(int x, int y) {
+        int block = block(x, y);
+        if (cellViews == null) {
+            cellViews = new CellView[counts.length];
+        }
+        if (cellViews[block] == null) {
+            cellViews[block] = new CellView(x, y);
+        }
+        return cellViews[block];
+    }
+
+    public int getFromX(int x, int y, int i) {
+        return fromX[slot(x, y, i)];
+    }
+
+    public int getFromY(int x, int y, int i) {
+        return fromY[slot(x, y, i)];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Makes this grid an exact copy of other, which must have the same size.
+     */
+    public void copyFrom(AnimationGrid other) {
+        System.arraycopy(other.counts, 0, counts, 0, counts.length);
+        System.arraycopy(other.types, 0, types, 0, types.length);
+        System.arraycopy(other.fromX, 0, fromX, 0, fromX.length);
+        System.arraycopy(other.fromY, 0, fromY, 0, fromY.length);
+        System.arraycopy(other.elapsed, 0, elapsed, 0, elapsed.length);
+        System.arraycopy(other.durations, 0, durations, 0, durations.length);
+        System.arraycopy(other.delays, 0, delays, 0, delays.length);
+        animatedCells = other.animatedCells;
+        activeAnimations = other.activeAnimations;
+        oneMoreFrame = other.oneMoreFrame;
+    }
+
+    public void cancelAnimations() {
+        for (int block = 0; block < counts.length; block++) {
+            counts[block] = 0;
+        }
+        animatedCells = 0;
+        activeAnimations = 0;
+    }
+
+    private int block(int x, int y) {
+        if (x == -1 && y == -1) {
+            return width * height;
+        }
+        return y * width + x;
+    }
+
+    private int slot(int x, int y, int i) {
+        return block(x, y) * SLOTS_PER_CELL + i;
+    }
+
+    private void remove(int block, int i) {
+        int first = block * SLOTS_PER_CELL;
+        for (int j = i + 1; j < counts[block]; j++) {
+            copy(first + j, first + j - 1);
+        }
+        counts[block]--;
+    }
+
+    private void copy(int from, int to) {
+        types[to] = types[from];
+        fromX[to] = fromX[from];
+        fromY[to] = fromY[from];
+        elapsed[to] = elapsed[from];
+        durations[to] = durations[from];
+        delays[to] = delays[from];
+    }
+
+    private final class CellView extends AbstractList<AnimationCell> {
+        private final int x;
+        private final int y;
+        private final AnimationCell[] cells = new AnimationCell[SLOTS_PER_CELL];
+
+        CellView(int x, int y) {
+            this.x = x;
+            this.y = y;
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = new AnimationCell(AnimationGrid.this, x, y, i);
+            }
+        }
+
+        @Override
+        public AnimationCell get(int i) {
+            if (i < 0 || i >= size()) {
+                throw new IndexOutOfBoundsException("animation " + i + " of " + size());
+            }
+            AnimationCell cell = cells[i];
+            cell.extras[0] = getFromX(x, y, i);
+            cell.extras[1] = getFromY(x, y, i);
+            return cell;
+        }
+
+        @Override
+        public int size() {
+            return getAnimationCount(x, y);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package io.github.liaob.game2;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays many 4x4 games with a fixed strategy across a pool of threads and
+ * reports throughput, the spread of the largest tiles reached and the win
+ * rate. Games run on {@link Replay}, which follows the rules of
+ * {@link Game#move(int)} exactly, and game i always starts from the same
+ * seed, so the results do not depend on how many threads played them.
+ * Expectimax searches a fixed depth rather than for a time, for the same
+ * reason.
+ *
+ * Each thread keeps its own tallies and hands out games to itself through
+ * one atomic counter; the tallies are only added up once every thread has
+ * finished. The batch is played again with 1, 2, 4 ... threads to show how
+ * it scales.
+ *
+ * Usage: BatchSimulation [random|greedy|corner|expectimax] [games] [threads]
+ *        [seed] [expectimax depth]
+ */
+public class BatchSimulation {
+
+    public static final String RANDOM = "random";
+    public static final String GREEDY = "greedy";
+    public static final String CORNER = "corner";
+    public static final String EXPECTIMAX = "expectimax";
+
+    /**
+     * Picks the moves of one thread's games.
+     */
+    public interface Strategy {
+        /**
+         * A direction that changes board; only asked while there is one.
+         */
+        int chooseMove(long board);
+    }
+
+    /**
+     * What a batch played, added up over its threads.
+     */
+    public static class Result {
+        public final int threads;
+        public long games;
+        public long moves;
+        public long wins;
+        public long nanos;
+        // Games by the exponent of their largest tile
+        public final long[] maxTiles = new long[BitBoard.MAX_EXPONENT + 1];
+        public final long[] gamesPerThread;
+
+        Result(int threads) {
+            this.threads = threads;
+            gamesPerThread = new long[threads];
+        }
+
+        public double gamesPerSecond() {
+            return games * 1e9 / nanos;
+        }
+
+        public double movesPerSecond() {
+            return moves * 1e9 / nanos;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String strategy = args.length > 0 ? args[0] : CORNER;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+                : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 2048;
+        int searchDepth = args.length > 4 ? Integer.parseInt(args[4]) : 2;
+
+        // Warm up the JIT before anything is timed
+        run(strategy, Math.max(1, games / 10), threads, seed + 1, searchDepth);
+
+        System.out.println(strategy + ", " + games + " games, seed " + seed);
+        System.out.println("threads\tgames/s\tmoves/s\tspeedup\tefficiency");
+        Result baseline = null;
+        Result last = null;
+        for (int count = 1; count <= threads; count = count < threads
+                ? Math.min(count * 2, threads) : count + 1) {
+            last = run(strategy, games, count, seed, searchDepth);
+            if (baseline == null) {
+                baseline = last;
+            }
+            double speedup = last.gamesPerSecond() / baseline.gamesPerSecond();
+            System.out.println(count + "\t" + format(last.gamesPerSecond()) + "\t"
+                    + Math.round(last.movesPerSecond()) + "\t" + format(speedup) + "x\t"
+                    + format(100 * speedup / count) + "%");
+        }
+
+        System.out.println("max tile\tgames\tshare");
+        for (int exponent = 1; exponent < last.maxTiles.length; exponent++) {
+            if (last.maxTiles[exponent] != 0) {
+                System.out.println((1 << exponent) + "\t" + last.maxTiles[exponent] + "\t"
+                        + format(100.0 * last.maxTiles[exponent] / last.games) + "%");
+            }
+        }
+        System.out.println("win rate " + format(100.0 * last.wins / last.games) + "%");
+        StringBuilder perThread = new StringBuilder("games per thread");
+        for (long count : last.gamesPerThread) {
+            perThread.append(' ').append(count);
+        }
+        System.out.println(perThread);
+    }
+
+    /**
+     * Plays games 0 to games - 1 on threads threads. searchDepth is how deep
+     * the expectimax strategy searches each move.
+     */
+    public static Result run(String strategy, int games, int threads, long seed,
+                             int searchDepth) throws InterruptedException {
+        AtomicInteger nextGame = new AtomicInteger();
+        Worker[] workers = new Worker[threads];
+        Thread[] pool = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(strategy, games, seed, searchDepth, nextGame);
+            pool[i] = new Thread(workers[i], "BatchSimulation-" + i);
+        }
+        long start = System.nanoTime();
+        for (Thread thread : pool) {
+            thread.start();
+        }
+        for (Thread thread : pool) {
+            thread.join();
+        }
+
+        Result result = new Result(threads);
+        result.nanos = System.nanoTime() - start;
+        for (int i = 0; i < threads; i++) {
+            Worker worker = workers[i];
+            result.games += worker.games;
+            result.moves += worker.moves;
+            result.wins += worker.wins;
+            result.gamesPerThread[i] = worker.games;
+            for (int exponent = 0; exponent < result.maxTiles.length; exponent++) {
+                result.maxTiles[exponent] += worker.maxTiles[exponent];
+            }
+        }
+        return result;
+    }
+
+    public static Strategy createStrategy(String name, final SplitMix64 random,
+                                          final int searchDepth) {
+        if (RANDOM.equals(name)) {
+            return new Strategy() {
+                @Override
+                public int chooseMove(long board) {
+                    int direction;
+                    do {
+                        direction = random.nextInt(4);
+                    } while (!BitBoard.canMove(board, direction));
+                    return direction;
+                }
+            };
+        } else if (GREEDY.equals(name)) {
+            // The move that merges the most, the first legal one on a tie
+            return new Strategy() {
+                @Override
+                public int chooseMove(long board) {
+                    int best = -1;
+                    int bestScore = -1;
+                    for (int direction = 0; direction < 4; direction++) {
+                        if (BitBoard.canMove(board, direction)) {
+                            int score = BitBoard.moveScore(board, direction);
+                            if (score > bestScore) {
+                                bestScore = score;
+                                best = direction;
+                            }
+                        }
+                    }
+                    return best;
+                }
+            };
+        } else if (CORNER.equals(name)) {
+            // Keeps the big tiles in the bottom left corner: down, then
+            // left, then right, and up only when nothing else moves
+            return new Strategy() {
+                private final int[] order = {2, 3, 1, 0};
+
+                @Override
+                public int chooseMove(long board) {
+                    for (int direction : order) {
+                        if (BitBoard.canMove(board, direction)) {
+                            return direction;
+                        }
+                    }
+                    return -1;
+                }
+            };
+        } else if (EXPECTIMAX.equals(name)) {
+            final Expectimax search = new Expectimax();
+            return new Strategy() {
+                @Override
+                public int chooseMove(long board) {
+                    return search.bestMove(board, searchDepth);
+                }
+            };
+        }
+        throw new IllegalArgumentException("unknown strategy " + name);
+    }
+
+    // Plays games until none are left; only touched by its own thread until
+    // that thread has been joined
+    private static final class Worker implements Runnable {
+        private final String strategyName;
+        private final int totalGames;
+        private final long seed;
+        private final int searchDepth;
+        private final AtomicInteger nextGame;
+
+        long games;
+        long moves;
+        long wins;
+        final long[] maxTiles = new long[BitBoard.MAX_EXPONENT + 1];
+
+        Worker(String strategyName, int totalGames, long seed, int searchDepth,
+               AtomicInteger nextGame) {
+            this.strategyName = strategyName;
+            this.totalGames = totalGames;
+            this.seed = seed;
+            this.searchDepth = searchDepth;
+            this.nextGame = nextGame;
+        }
+
+        @Override
+        public void run() {
+            SplitMix64 random = new SplitMix64(seed);
+            Strategy strategy = createStrategy(strategyName, random, searchDepth);
+            Replay game = new Replay();
+            // Counted in locals and published once, so the hot loop writes
+            // nothing another thread could share a cache line with
+            long games = 0;
+            long moves = 0;
+            long wins = 0;
+            int index;
+            while ((index = nextGame.getAndIncrement()) < totalGames) {
+                // Game index's own stream, for its spawns and random moves
+                random.setState(seed + index);
+                game.start(random.nextLong());
+                while (game.isActive()) {
+                    game.move(strategy.chooseMove(game.board));
+                    moves++;
+                }
+                games++;
+                if (game.gameState != Game.GAME_LOST) {
+                    wins++;
+                }
+                maxTiles[BitBoard.maxExponent(game.board)]++;
+            }
+            this.games = games;
+            this.moves = moves;
+            this.wins = wins;
+        }
+    }
+
+    private static String format(double value) {
+        return String.valueOf(Math.round(value * 100) / 100.0);
+    }
+}
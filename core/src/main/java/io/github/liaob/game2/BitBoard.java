@@ -0,0 +1,233 @@
+package io.github.liaob.game2;
+
+/**
+ * A 4x4 board packed into a single long: 16 nibbles, each holding the
+ * base-2 exponent of the tile at that position (0 means empty). The nibble
+ * for cell (x, y) sits at index y * 4 + x, so each row is one 16-bit chunk.
+ *
+ * A nibble stops at {@link #MAX_EXPONENT}, a 32768 tile: two of them merge
+ * into another 32768 here. The search works on these boards; the game keeps
+ * its board in a {@link PackedBoard}, which only moves through these tables
+ * while every tile is smaller.
+ *
+ * Directions match {@link Game#move(int)}: 0 up, 1 right, 2 down, 3 left.
+ */
+public final class BitBoard {
+
+    public static final int SIZE = 4;
+    public static final int CELLS = SIZE * SIZE;
+    public static final int MAX_EXPONENT = 0xF;
+
+    private static final int ROW_MASK = 0xFFFF;
+
+    private BitBoard() {
+    }
+
+    public static int getExponent(long board, int x, int y) {
+        return getExponent(board, (y << 2) | x);
+    }
+
+    public static int getExponent(long board, int index) {
+        return (int) (board >>> (index << 2)) & 0xF;
+    }
+
+    public static int getValue(long board, int x, int y) {
+        int exponent = getExponent(board, x, y);
+        return exponent == 0 ? 0 : 1 << exponent;
+    }
+
+    public static long setExponent(long board, int x, int y, int exponent) {
+        return setExponent(board, (y << 2) | x, exponent);
+    }
+
+    public static long setExponent(long board, int index, int exponent) {
+        if (exponent < 0 || exponent > MAX_EXPONENT) {
+            throw new IllegalArgumentException("exponent " + exponent);
+        }
+        int shift = index << 2;
+        return (board & ~(0xFL << shift)) | ((long) exponent << shift);
+    }
+
+    /**
+     * Packs a 4x4 grid. Throws IllegalArgumentException if a tile is above
+     * 32768.
+     */
+    public static long fromGrid(Grid grid) {
+        long board = 0;
+        for (int xx = 0; xx < SIZE; xx++) {
+            for (int yy = 0; yy < SIZE; yy++) {
+                Tile tile = grid.field[xx][yy];
+                if (tile != null) {
+                    board = setExponent(board, xx, yy, log2(tile.getValue()));
+                }
+            }
+        }
+        return board;
+    }
+
+    public static void toGrid(long board, Grid grid) {
+        grid.clearGrid();
+        for (int xx = 0; xx < SIZE; xx++) {
+            for (int yy = 0; yy < SIZE; yy++) {
+                int value = getValue(board, xx, yy);
+                if (value != 0) {
+                    grid.insertTile(new Tile(xx, yy, value));
+                }
+            }
+        }
+    }
+
+    public static int countEmpty(long board) {
+        int empty = 0;
+        for (int index = 0; index < CELLS; index++) {
+            if (getExponent(board, index) == 0) {
+                empty++;
+            }
+        }
+        return empty;
+    }
+
+    public static int maxExponent(long board) {
+        int max = 0;
+        for (int index = 0; index < CELLS; index++) {
+            max = Math.max(max, getExponent(board, index));
+        }
+        return max;
+    }
+
+    /**
+     * Places a tile on an empty cell; the spawn half of a turn.
+     */
+    public static long spawn(long board, int index, int exponent) {
+        return setExponent(board, index, exponent);
+    }
+
+    public static long move(long board, int direction) {
+        switch (direction) {
+            case 0:
+                return transpose(slideRows(transpose(board), MoveTables.LEFT));
+            case 1:
+                return slideRows(board, MoveTables.RIGHT);
+            case 2:
+                return transpose(slideRows(transpose(board), MoveTables.RIGHT));
+            case 3:
+                return slideRows(board, MoveTables.LEFT);
+            default:
+                throw new IllegalArgumentException("direction " + direction);
+        }
+    }
+
+    /**
+     * The sum of the tiles merged by {@link #move(long, int)}.
+     */
+    public static int moveScore(long board, int direction) {
+        switch (direction) {
+            case 0:
+                return rowScores(transpose(board), MoveTables.LEFT_SCORE);
+            case 1:
+                return rowScores(board, MoveTables.RIGHT_SCORE);
+            case 2:
+                return rowScores(transpose(board), MoveTables.RIGHT_SCORE);
+            case 3:
+                return rowScores(board, MoveTables.LEFT_SCORE);
+            default:
+                throw new IllegalArgumentException("direction " + direction);
+        }
+    }
+
+    public static boolean canMove(long board, int direction) {
+        switch (direction) {
+            case 0:
+                return rowsChanged(transpose(board), MoveTables.LEFT);
+            case 1:
+                return rowsChanged(board, MoveTables.RIGHT);
+            case 2:
+                return rowsChanged(transpose(board), MoveTables.RIGHT);
+            case 3:
+                return rowsChanged(board, MoveTables.LEFT);
+            default:
+                throw new IllegalArgumentException("direction " + direction);
+        }
+    }
+
+    public static boolean movesAvailable(long board) {
+        return rowsChanged(board, MoveTables.LEFT)
+                || rowsChanged(board, MoveTables.RIGHT)
+                || rowsChanged(transpose(board), MoveTables.LEFT)
+                || rowsChanged(transpose(board), MoveTables.RIGHT);
+    }
+
+    /**
+     * Swaps rows and columns, so vertical moves can reuse the row slides.
+     */
+    public static long transpose(long board) {
+        long a1 = board & 0xF0F00F0FF0F00F0FL;
+        long a2 = board & 0x0000F0F00000F0F0L;
+        long a3 = board & 0x0F0F00000F0F0000L;
+        long a = a1 | (a2 << 12) | (a3 >>> 12);
+        long b1 = a & 0xFF00FF0000FF00FFL;
+        long b2 = a & 0x00FF00FF00000000L;
+        long b3 = a & 0x00000000FF00FF00L;
+        return b1 | (b2 >>> 24) | (b3 << 24);
+    }
+
+    private static long slideRows(long board, int[] table) {
+        return (long) (table[(int) board & ROW_MASK] & ROW_MASK)
+                | (long) (table[(int) (board >>> 16) & ROW_MASK] & ROW_MASK) << 16
+                | (long) (table[(int) (board >>> 32) & ROW_MASK] & ROW_MASK) << 32
+                | (long) (table[(int) (board >>> 48) & ROW_MASK] & ROW_MASK) << 48;
+    }
+
+    private static boolean rowsChanged(long board, int[] table) {
+        return ((table[(int) board & ROW_MASK]
+                | table[(int) (board >>> 16) & ROW_MASK]
+                | table[(int) (board >>> 32) & ROW_MASK]
+                | table[(int) (board >>> 48) & ROW_MASK]) & MoveTables.CHANGED) != 0;
+    }
+
+    private static int rowScores(long board, int[] table) {
+        return table[(int) board & ROW_MASK]
+                + table[(int) (board >>> 16) & ROW_MASK]
+                + table[(int) (board >>> 32) & ROW_MASK]
+                + table[(int) (board >>> 48) & ROW_MASK];
+    }
+
+    // Same rules as Game.move: each tile merges at most once per move, and
+    // the tile nearest the wall it is sliding towards merges first. Only used
+    // to fill MoveTables.
+    static int slideRowLeft(int row) {
+        int result = 0;
+        int target = 0;
+        int pending = 0;
+        for (int i = 0; i < SIZE; i++) {
+            int exponent = (row >>> (i << 2)) & 0xF;
+            if (exponent == 0) {
+                continue;
+            }
+            if (exponent == pending) {
+                result |= Math.min(exponent + 1, MAX_EXPONENT) << (target << 2);
+                target++;
+                pending = 0;
+            } else {
+                if (pending != 0) {
+                    result |= pending << (target << 2);
+                    target++;
+                }
+                pending = exponent;
+            }
+        }
+        if (pending != 0) {
+            result |= pending << (target << 2);
+        }
+        return result;
+    }
+
+    static int reverseRow(int row) {
+        return ((row & 0xF) << 12) | ((row & 0xF0) << 4)
+                | ((row >>> 4) & 0xF0) | ((row >>> 12) & 0xF);
+    }
+
+    private static int log2(int n) {
+        return 31 - Integer.numberOfLeadingZeros(n);
+    }
+}
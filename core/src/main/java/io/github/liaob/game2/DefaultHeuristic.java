@@ -0,0 +1,86 @@
+package io.github.liaob.game2;
+
+/**
+ * Rewards empty cells, adjacent equal tiles and rows and columns that rise
+ * or fall monotonically. Every term only looks at one line at a time, so the
+ * score for all 65,536 rows is computed up front and a board costs eight
+ * lookups.
+ */
+public class DefaultHeuristic implements Heuristic {
+
+    // Added to every line, so that any live board outscores a lost one,
+    // which the search scores as zero
+    public static final float LINE_BASE_SCORE = 200000f;
+
+    private final float[] rowScores = new float[MoveTables.ROWS];
+
+    public DefaultHeuristic() {
+        this(270f, 700f, 47f, 11f);
+    }
+
+    public DefaultHeuristic(float emptyWeight, float mergeWeight,
+                            float monotonicityWeight, float sumWeight) {
+        for (int row = 0; row < MoveTables.ROWS; row++) {
+            rowScores[row] = scoreRow(row, emptyWeight, mergeWeight,
+                    monotonicityWeight, sumWeight);
+        }
+    }
+
+    @Override
+    public float evaluate(long board) {
+        long transposed = BitBoard.transpose(board);
+        return rowScores[(int) board & 0xFFFF]
+                + rowScores[(int) (board >>> 16) & 0xFFFF]
+                + rowScores[(int) (board >>> 32) & 0xFFFF]
+                + rowScores[(int) (board >>> 48) & 0xFFFF]
+                + rowScores[(int) transposed & 0xFFFF]
+                + rowScores[(int) (transposed >>> 16) & 0xFFFF]
+                + rowScores[(int) (transposed >>> 32) & 0xFFFF]
+                + rowScores[(int) (transposed >>> 48) & 0xFFFF];
+    }
+
+    private static float scoreRow(int row, float emptyWeight, float mergeWeight,
+                                  float monotonicityWeight, float sumWeight) {
+        int empty = 0;
+        int merges = 0;
+        int previous = 0;
+        int counter = 0;
+        float sum = 0;
+        for (int i = 0; i < BitBoard.SIZE; i++) {
+            int rank = (row >>> (i << 2)) & 0xF;
+            sum += Math.pow(rank, 3.5);
+            if (rank == 0) {
+                empty++;
+            } else {
+                if (previous == rank) {
+                    counter++;
+                } else if (counter > 0) {
+                    merges += 1 + counter;
+                    counter = 0;
+                }
+                previous = rank;
+            }
+        }
+        if (counter > 0) {
+            merges += 1 + counter;
+        }
+
+        float monotonicityLeft = 0;
+        float monotonicityRight = 0;
+        for (int i = 1; i < BitBoard.SIZE; i++) {
+            int left = (row >>> ((i - 1) << 2)) & 0xF;
+            int right = (row >>> (i << 2)) & 0xF;
+            if (left > right) {
+                monotonicityLeft += Math.pow(left, 4) - Math.pow(right, 4);
+            } else {
+                monotonicityRight += Math.pow(right, 4) - Math.pow(left, 4);
+            }
+        }
+
+        return LINE_BASE_SCORE
+                + emptyWeight * empty
+                + mergeWeight * merges
+                - monotonicityWeight * Math.min(monotonicityLeft, monotonicityRight)
+                - sumWeight * sum;
+    }
+}
@@ -0,0 +1,178 @@
+package io.github.liaob.game2;
+
+/**
+ * Picks the best of the four directions accepted by {@link Game#move(int)}
+ * by searching max nodes over moves and chance nodes over the cells a new
+ * tile can spawn in. The search deepens one level at a time until the time
+ * budget runs out and answers with the deepest fully searched level.
+ */
+public class Expectimax {
+
+    public static final long DEFAULT_BUDGET_NANOS = 50000000L;
+    public static final int MAX_DEPTH = 8;
+
+    // Game.addRandomTile only ever spawns a 2
+    static final int SPAWN_EXPONENT = 1;
+
+    // Chance branches less likely than this are scored by the heuristic
+    static final float MIN_PROBABILITY = 0.0001f;
+    private static final int NODES_PER_CLOCK_CHECK = 1024;
+
+    private final Heuristic heuristic;
+    private final TranspositionTable table;
+    private final long budgetNanos;
+
+    private long deadline;
+    private int nodesUntilCheck;
+    private boolean outOfTime;
+    private int searchedDepth;
+
+    public Expectimax() {
+        this(new DefaultHeuristic(), DEFAULT_BUDGET_NANOS);
+    }
+
+    public Expectimax(Heuristic heuristic, long budgetNanos) {
+        this(heuristic, new TranspositionTable(18), budgetNanos);
+    }
+
+    public Expectimax(Heuristic heuristic, TranspositionTable table, long budgetNanos) {
+        this.heuristic = heuristic;
+        this.table = table;
+        this.budgetNanos = budgetNanos;
+    }
+
+    public int bestMove(Grid grid) {
+        return bestMove(BitBoard.fromGrid(grid));
+    }
+
+    /**
+     * Returns the direction to play, or -1 if no move changes the board.
+     */
+    public int bestMove(long board) {
+        start(System.nanoTime() + budgetNanos);
+        int best = -1;
+        for (int direction = 0; direction < 4 && best == -1; direction++) {
+            if (BitBoard.canMove(board, direction)) {
+                best = direction;
+            }
+        }
+        for (int depth = 1; depth <= MAX_DEPTH && best != -1; depth++) {
+            int candidate = searchRoot(board, depth);
+            if (outOfTime) {
+                break;
+            }
+            best = candidate;
+            searchedDepth = depth;
+        }
+        return best;
+    }
+
+    /**
+     * Searches exactly depth levels, however long that takes, so the answer
+     * is the same on any machine. Returns -1 if no move changes the board.
+     */
+    public int bestMove(long board, int depth) {
+        // No clock reading is ever past it
+        start(Long.MAX_VALUE);
+        int best = searchRoot(board, depth);
+        if (best != -1) {
+            searchedDepth = depth;
+        }
+        return best;
+    }
+
+    private void start(long deadline) {
+        this.deadline = deadline;
+        nodesUntilCheck = NODES_PER_CLOCK_CHECK;
+        outOfTime = false;
+        searchedDepth = 0;
+        table.clear();
+    }
+
+    /**
+     * The depth that the last bestMove call completed.
+     */
+    public int getSearchedDepth() {
+        return searchedDepth;
+    }
+
+    /**
+     * Searches one chance node on behalf of {@link ParallelExpectimax},
+     * which hands each worker thread its own instance.
+     */
+    float searchChance(long board, int depth, float probability, long deadline) {
+        this.deadline = deadline;
+        nodesUntilCheck = NODES_PER_CLOCK_CHECK;
+        outOfTime = System.nanoTime() > deadline;
+        return chanceNode(board, depth, probability);
+    }
+
+    boolean isOutOfTime() {
+        return outOfTime;
+    }
+
+    private int searchRoot(long board, int depth) {
+        int best = -1;
+        float bestScore = -1;
+        for (int direction = 0; direction < 4; direction++) {
+            long moved = BitBoard.move(board, direction);
+            if (moved == board) {
+                continue;
+            }
+            float score = chanceNode(moved, depth - 1, 1f);
+            if (outOfTime) {
+                return -1;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                best = direction;
+            }
+        }
+        return best;
+    }
+
+    private float maxNode(long board, int depth, float probability) {
+        float best = 0;
+        for (int direction = 0; direction < 4; direction++) {
+            long moved = BitBoard.move(board, direction);
+            if (moved != board) {
+                best = Math.max(best, chanceNode(moved, depth - 1, probability));
+            }
+        }
+        return best;
+    }
+
+    private float chanceNode(long board, int depth, float probability) {
+        if (depth <= 0 || probability < MIN_PROBABILITY) {
+            return heuristic.evaluate(board);
+        }
+        if (--nodesUntilCheck <= 0) {
+            nodesUntilCheck = NODES_PER_CLOCK_CHECK;
+            outOfTime = System.nanoTime() > deadline;
+        }
+        if (outOfTime) {
+            return 0;
+        }
+
+        float cached = table.get(board, depth);
+        if (!Float.isNaN(cached)) {
+            return cached;
+        }
+
+        int empty = BitBoard.countEmpty(board);
+        float childProbability = probability / empty;
+        float total = 0;
+        for (int index = 0; index < BitBoard.CELLS; index++) {
+            if (BitBoard.getExponent(board, index) == 0) {
+                long spawned = BitBoard.spawn(board, index, SPAWN_EXPONENT);
+                total += maxNode(spawned, depth, childProbability);
+            }
+        }
+        float score = total / empty;
+
+        if (!outOfTime) {
+            table.put(board, depth, score);
+        }
+        return score;
+    }
+}
@@ -0,0 +1,139 @@
+package io.github.liaob.game2;
+
+import java.io.IOException;
+
+/**
+ * Counts durations, such as how long frames take to draw, in fixed buckets
+ * of {@link #BUCKET_NANOS}. The buckets are allocated up front and
+ * {@link #record(long)} only increments them, so it can run every frame on
+ * the UI or render thread without creating garbage.
+ *
+ * Not thread-safe: record on one thread, or lock around it.
+ */
+public class FrameHistogram {
+
+    public static final long BUCKET_NANOS = 250000L;
+    // Up to 100ms by default; anything longer goes into the last bucket
+    public static final int BUCKETS = 400;
+
+    private final String name;
+    private final int buckets;
+    private final long[] counts;
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+
+    public FrameHistogram(String name) {
+        this(name, BUCKETS);
+    }
+
+    /**
+     * A histogram of buckets buckets, for durations up to buckets times
+     * BUCKET_NANOS.
+     */
+    public FrameHistogram(String name, int buckets) {
+        this.name = name;
+        this.buckets = buckets;
+        counts = new long[buckets + 1];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts[(int) Math.min(nanos / BUCKET_NANOS, buckets)]++;
+        count++;
+        totalNanos += nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public long getMeanNanos() {
+        return count == 0 ? 0 : totalNanos / count;
+    }
+
+    /**
+     * The upper edge of the bucket holding the given fraction (0 to 1) of
+     * the durations, or the longest duration if that is sooner; 0 if
+     * nothing was recorded.
+     */
+    public long getPercentileNanos(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < buckets; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min((i + 1) * BUCKET_NANOS, maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    /**
+     * How many durations took at least nanos, to bucket precision.
+     */
+    public long countAtLeast(long nanos) {
+        long atLeast = 0;
+        for (int i = (int) Math.min(nanos / BUCKET_NANOS, buckets); i <= buckets; i++) {
+            atLeast += counts[i];
+        }
+        return atLeast;
+    }
+
+    /**
+     * Writes a summary line and then one line per non-empty bucket, its
+     * lower edge in microseconds and its count, tab separated.
+     */
+    public void writeTo(Appendable out) throws IOException {
+        writeSummaryTo(out);
+        out.append('\n');
+        for (int i = 0; i <= buckets; i++) {
+            if (counts[i] != 0) {
+                out.append(micros(i * BUCKET_NANOS)).append('\t')
+                        .append(String.valueOf(counts[i])).append('\n');
+            }
+        }
+    }
+
+    /**
+     * Writes the count, mean, p50, p95, p99 and max, in microseconds, on
+     * one line with no line break.
+     */
+    public void writeSummaryTo(Appendable out) throws IOException {
+        out.append(name).append("\tcount ").append(String.valueOf(count))
+                .append("\tmean ").append(micros(getMeanNanos()))
+                .append("\tp50 ").append(micros(getPercentileNanos(0.5)))
+                .append("\tp95 ").append(micros(getPercentileNanos(0.95)))
+                .append("\tp99 ").append(micros(getPercentileNanos(0.99)))
+                .append("\tmax ").append(micros(maxNanos));
+    }
+
+    private static String micros(long nanos) {
+        return String.valueOf(nanos / 1000);
+    }
+}
@@ -0,0 +1,500 @@
+package io.github.liaob.game2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Game {
+        public static final int SPAWN_ANIMATION = -1;
+        public static final int MOVE_ANIMATION = 0;
+        public static final int MERGE_ANIMATION = 1;
+
+        public static final int FADE_GLOBAL_ANIMATION = 0;
+
+        public static final long BASE_ANIMATION_TIME = 100000000;
+        public static final long MOVE_ANIMATION_TIME = BASE_ANIMATION_TIME;
+        public static final long SPAWN_ANIMATION_TIME = BASE_ANIMATION_TIME;
+        public static final long NOTIFICATION_ANIMATION_TIME = BASE_ANIMATION_TIME * 5;
+        public static final long NOTIFICATION_DELAY_TIME = MOVE_ANIMATION_TIME
+                + SPAWN_ANIMATION_TIME;
+
+    public static final int startingMaxValue = 2048;
+        public static final int UNDO_LEVELS = 256;
+        public static final int DEFAULT_SIZE = 4;
+
+        public static final int GAME_WIN = 1;
+        public static final int GAME_LOST = -1;
+        public static final int GAME_NORMAL = 0;
+        public static final int GAME_NORMAL_WON = 1;
+
+        // 0: up, 1: right, 2: down, 3: left
+        private static final int[] VECTOR_X = {0, 1, 0, -1};
+        private static final int[] VECTOR_Y = {-1, 0, 1, 0};
+        public Grid grid = null;
+        public AnimationGrid aGrid;
+        // Set through newGame(int) and restore; read them, don't write them
+        int numSquaresX = DEFAULT_SIZE;
+        int numSquaresY = DEFAULT_SIZE;
+        final int startTiles = 2;
+        // The grid packed, refreshed by getPackedBoard
+        private final PackedBoard board = new PackedBoard(DEFAULT_SIZE, DEFAULT_SIZE);
+
+        public int gameState = 0;
+
+        public long turns = 0;
+        public String personalBest = "N/A";
+
+        // The score text is only built when something draws it
+        private String moves = "0";
+        private long movesTurns = 0;
+
+        private final UndoHistory history = new UndoHistory(UNDO_LEVELS);
+        private final PackedBoard restoreBoard = new PackedBoard(DEFAULT_SIZE, DEFAULT_SIZE);
+
+        // Where the last tile spawned, and where replayMove wants the next one
+        private int lastSpawnIndex = -1;
+        private int lastSpawnValue = 0;
+        private int forcedSpawnIndex = -1;
+        private int forcedSpawnValue = 0;
+
+        // Headless games skip the animation bookkeeping nobody will draw
+        private final boolean animated;
+        private final SplitMix64 random;
+        private long startSeed;
+        private final List<GameListener> listeners = new ArrayList<GameListener>();
+
+        public Game() {
+            this(true);
+        }
+
+        public Game(boolean animated) {
+            this(animated, new SplitMix64());
+        }
+
+        /**
+         * A game that draws its spawns from random; games given generators
+         * in the same state play out the same for the same moves.
+         */
+        public Game(boolean animated, SplitMix64 random) {
+            this.animated = animated;
+            this.random = random;
+        }
+
+        public SplitMix64 getRandom() {
+            return random;
+        }
+
+        /**
+         * State of the generator when this game started; with the moves
+         * made since, enough for a {@link Replay} as long as none was
+         * undone. Games restored from a save do not know theirs.
+         */
+        public long getStartSeed() {
+            return startSeed;
+        }
+
+        public void addListener(GameListener listener) {
+            listeners.add(listener);
+        }
+
+        public void removeListener(GameListener listener) {
+            listeners.remove(listener);
+        }
+
+        /**
+         * Starts a new game on a size x size board, from
+         * {@link PackedBoard#MIN_SIZE} to {@link PackedBoard#MAX_SIZE}.
+         */
+        public void newGame(int size) {
+            if (grid == null || size != numSquaresX || size != numSquaresY) {
+                allocate(size, size);
+            }
+            newGame();
+        }
+
+        public void newGame() {
+            if (grid == null) {
+                allocate(numSquaresX, numSquaresY);
+            } else {
+                grid.clearGrid();
+                aGrid.cancelAnimations();
+            }
+            turns = 0;
+            gameState = GAME_NORMAL;
+            startSeed = random.getState();
+            addStartTiles();
+            history.reset(getPackedBoard(), turns, gameState);
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).onNewGame();
+            }
+        }
+
+        // Everything sized to the board; only when the size changes
+        private void allocate(int width, int height) {
+            board.setSize(width, height);
+            numSquaresX = width;
+            numSquaresY = height;
+            grid = new Grid(width, height, random);
+            aGrid = new AnimationGrid(width, height);
+        }
+
+        public int getWidth() {
+            return numSquaresX;
+        }
+
+        public int getHeight() {
+            return numSquaresY;
+        }
+
+        private void addStartTiles() {
+            for (int xx = 0; xx < startTiles; xx++) {
+                this.addRandomTile();
+            }
+        }
+
+        private void addRandomTile() {
+            // Forced spawns still draw, so a replay leaves the generator
+            // where the recorded game left it
+            int index = grid.randomAvailableIndex();
+            int value = 2;
+            if (forcedSpawnIndex != -1) {
+                index = grid.isCellAvailable(forcedSpawnIndex % numSquaresX,
+                        forcedSpawnIndex / numSquaresX) ? forcedSpawnIndex : -1;
+                value = forcedSpawnValue;
+                forcedSpawnIndex = -1;
+            }
+            lastSpawnIndex = index;
+            lastSpawnValue = value;
+            if (index != -1) {
+                Tile tile = grid.obtainTile(index % numSquaresX,
+                        index / numSquaresX, value);
+                spawnTile(tile);
+            }
+        }
+
+        /**
+         * Plays a recorded move: the same as {@link #move(int)}, except that
+         * the tile spawned afterwards goes to cell spawnIndex, numbered
+         * {@code y * width + x}, with spawnValue.
+         */
+        public void replayMove(int direction, int spawnIndex, int spawnValue) {
+            forcedSpawnIndex = spawnIndex;
+            forcedSpawnValue = spawnValue;
+            move(direction);
+            forcedSpawnIndex = -1;
+        }
+
+        /**
+         * Cell of the last tile spawned, numbered {@code y * width + x}, or -1
+         * if the board was full.
+         */
+        public int getLastSpawnIndex() {
+            return lastSpawnIndex;
+        }
+
+        public int getLastSpawnValue() {
+            return lastSpawnValue;
+        }
+
+        private void spawnTile(Tile tile) {
+            grid.insertTile(tile);
+            startAnimation(tile.getX(), tile.getY(), SPAWN_ANIMATION,
+                    SPAWN_ANIMATION_TIME, MOVE_ANIMATION_TIME, null);
+        }
+
+        private void recordHighScore() {
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).onPersonalBest(personalBest);
+            }
+        }
+
+        private void startAnimation(int x, int y, int animationType, long length,
+                                    long delay, int[] extras) {
+            if (animated) {
+                aGrid.startAnimation(x, y, animationType, length, delay, extras);
+            }
+        }
+
+        private void startMoveAnimation(int x, int y, int fromX, int fromY) {
+            if (animated) {
+                aGrid.startAnimation(x, y, MOVE_ANIMATION, MOVE_ANIMATION_TIME, 0,
+                        fromX, fromY);
+            }
+        }
+
+        private void prepareTiles() {
+            for (Tile[] array : grid.field) {
+                for (Tile tile : array) {
+                    if (tile != null) {
+                        tile.setMerged(false);
+                    }
+                }
+            }
+        }
+
+        /**
+         * The board as a {@link BitBoard}, for 4x4 games with no tile above
+         * 32768 only; see {@link PackedBoard#fitsBitBoard()}.
+         */
+        public long getBoard() {
+            return getPackedBoard().toBitBoard();
+        }
+
+        /**
+         * The board, packed. The same object is refilled on every call, so
+         * copy it to keep it, and don't change it.
+         */
+        public PackedBoard getPackedBoard() {
+            board.fromGrid(grid);
+            return board;
+        }
+
+        public boolean gameWon() {
+            return (gameState > 0 && gameState % 2 != 0);
+        }
+
+        public boolean gameLost() {
+            return (gameState == GAME_LOST);
+        }
+
+        public boolean isActive() {
+            return !(gameWon() || gameLost());
+        }
+
+        public void move(int direction) {
+            // 0: up, 1: right, 2: down, 3: left
+            if (!isActive()) {
+                return;
+            }
+            int vectorX = VECTOR_X[direction];
+            int vectorY = VECTOR_Y[direction];
+            boolean moved = false;
+
+            prepareTiles();
+
+            // Swipes against a wall are common; the packed board spots them
+            // without walking the grid. That is all the lookup tables do
+            // here: the move itself still walks the grid tile by tile,
+            // since the animations need to know where each tile came from,
+            // which the table result does not say.
+            if (!getPackedBoard().canMove(direction)) {
+                notifyMove(direction, false);
+                return;
+            }
+            // Only the animations of this move are kept; whatever draws the
+            // game has its own copy of the last move's
+            aGrid.cancelAnimations();
+
+            // Traverse from the wall the tiles move towards, so the tiles
+            // nearest to it settle first
+            for (int ix = 0; ix < numSquaresX; ix++) {
+                int xx = vectorX == 1 ? numSquaresX - 1 - ix : ix;
+                for (int iy = 0; iy < numSquaresY; iy++) {
+                    int yy = vectorY == 1 ? numSquaresY - 1 - iy : iy;
+                    Tile tile = grid.field[xx][yy];
+
+                    if (tile != null) {
+                        // Farthest free cell in the direction of the move,
+                        // and the cell just past it
+                        int farX = xx;
+                        int farY = yy;
+                        while (grid.isCellWithinBounds(farX + vectorX, farY + vectorY)
+                                && grid.isCellAvailable(farX + vectorX, farY + vectorY)) {
+                            farX += vectorX;
+                            farY += vectorY;
+                        }
+                        int nextX = farX + vectorX;
+                        int nextY = farY + vectorY;
+                        Tile next = grid.getCellContent(nextX, nextY);
+
+                        if (next != null && next.getValue() == tile.getValue()
+                                && !next.isMerged()) {
+                            // The tile in front absorbs this one
+                            next.setValue(tile.getValue() * 2);
+                            next.setMerged(true);
+                            grid.removeTile(tile);
+                            grid.recycleTile(tile);
+
+                            startMoveAnimation(nextX, nextY, xx, yy);
+                            startAnimation(nextX, nextY,
+                                    MERGE_ANIMATION, SPAWN_ANIMATION_TIME,
+                                    MOVE_ANIMATION_TIME, null);
+
+                            // The mighty 2048 tile
+                            if (next.getValue() >= winValue() && !gameWon()) {
+                                gameState = gameState + GAME_WIN; // Set win state
+                                endGame();
+                            }
+                            moved = true;
+                        } else {
+                            grid.moveTile(tile, farX, farY);
+                            startMoveAnimation(farX, farY, xx, yy);
+                            if (farX != xx || farY != yy) {
+                                moved = true;
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (moved) {
+                turns++;
+                addRandomTile();
+                checkLose();
+                history.record(getPackedBoard(), turns, gameState);
+            }
+            notifyMove(direction, moved);
+        }
+
+        public String getMoves() {
+            if (movesTurns != turns) {
+                moves = String.valueOf(turns);
+                movesTurns = turns;
+            }
+            return moves;
+        }
+
+        public boolean canUndo() {
+            return history.canUndo();
+        }
+
+        public boolean canRedo() {
+            return history.canRedo();
+        }
+
+        /**
+         * Goes back one move, up to {@link #UNDO_LEVELS} moves back.
+         */
+        public void undo() {
+            if (!history.undo()) {
+                return;
+            }
+            showHistory();
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).onUndo();
+            }
+        }
+
+        /**
+         * Makes the last undone move again, with the tile it spawned.
+         * Any new move drops the moves left to redo.
+         */
+        public void redo() {
+            if (!history.redo()) {
+                return;
+            }
+            showHistory();
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).onRedo();
+            }
+        }
+
+        private void showHistory() {
+            aGrid.cancelAnimations();
+            history.getBoard(board);
+            board.toGrid(grid);
+            turns = history.getTurns();
+            gameState = history.getGameState();
+        }
+
+        /**
+         * Replaces the running game with a saved one, resizing the board to
+         * match. Nothing is animated and there is nothing to undo; listeners
+         * are not told, so callers refresh whatever shows the game.
+         * Restoring the state the game is already in changes nothing.
+         */
+        public void restore(PackedBoard saved, long turns, int gameState) {
+            if (grid == null || saved.getWidth() != numSquaresX
+                    || saved.getHeight() != numSquaresY) {
+                allocate(saved.getWidth(), saved.getHeight());
+            } else if (saved.equals(getPackedBoard()) && turns == this.turns
+                    && gameState == this.gameState) {
+                return;
+            }
+            aGrid.cancelAnimations();
+            board.copyFrom(saved);
+            board.toGrid(grid);
+            this.turns = turns;
+            this.gameState = gameState;
+            history.reset(board, turns, gameState);
+        }
+
+        /**
+         * {@link #restore(PackedBoard, long, int)} for a 4x4 {@link BitBoard}.
+         */
+        public void restore(long board, long turns, int gameState) {
+            restoreBoard.fromBitBoard(board);
+            restore(restoreBoard, turns, gameState);
+        }
+
+        private void notifyMove(int direction, boolean moved) {
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).onMove(direction, moved);
+            }
+        }
+
+        private void checkLose() {
+            if (!movesAvailable() && !gameWon()) {
+                gameState = GAME_LOST;
+                loseGame();
+            }
+            else if(gameWon()){
+                endGame();
+            }
+            else{
+            }
+        }
+
+    private void loseGame() {
+        startAnimation(-1, -1, FADE_GLOBAL_ANIMATION,
+                NOTIFICATION_ANIMATION_TIME, NOTIFICATION_DELAY_TIME, null);
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onGameEnd(false);
+        }
+    }
+
+        private void endGame() {
+            startAnimation(-1, -1, FADE_GLOBAL_ANIMATION,
+                    NOTIFICATION_ANIMATION_TIME, NOTIFICATION_DELAY_TIME, null);
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).onGameEnd(true);
+            }
+            if(personalBest.equals("N/A")){
+                personalBest = getMoves();
+                recordHighScore();
+            }
+            else if (turns <= Integer.parseInt(personalBest)) {
+                personalBest = getMoves();
+                recordHighScore();
+            }
+        }
+
+        boolean movesAvailable() {
+            return grid.isCellsAvailable() || tileMatchesAvailable();
+        }
+
+        boolean tileMatchesAvailable() {
+            for (int xx = 0; xx < numSquaresX; xx++) {
+                for (int yy = 0; yy < numSquaresY; yy++) {
+                    Tile tile = grid.field[xx][yy];
+
+                    if (tile != null) {
+                        for (int direction = 0; direction < 4; direction++) {
+                            Tile other = grid.getCellContent(xx + VECTOR_X[direction],
+                                    yy + VECTOR_Y[direction]);
+
+                            if (other != null
+                                    && other.getValue() == tile.getValue()) {
+                                return true;
+                            }
+                        }
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        private int winValue() {
+                return startingMaxValue;
+            }
+}
@@ -0,0 +1,24 @@
+package io.github.liaob.game2;
+
+/**
+ * Receives the events of a {@link Game}, so views, sound and storage can
+ * follow the rules without the rules knowing about any of them.
+ */
+public interface GameListener {
+
+    void onNewGame();
+
+    /**
+     * Called after every swipe; {@code moved} is false when the swipe left
+     * the board unchanged.
+     */
+    void onMove(int direction, boolean moved);
+
+    void onUndo();
+
+    void onRedo();
+
+    void onGameEnd(boolean won);
+
+    void onPersonalBest(String personalBest);
+}
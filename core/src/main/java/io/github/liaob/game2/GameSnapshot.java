@@ -0,0 +1,52 @@
+package io.github.liaob.game2;
+
+/**
+ * Everything needed to draw a game, copied out of it so that the copy can be
+ * drawn, and its animations advanced, without touching the live game. Copying
+ * reuses the snapshot's own storage and only allocates when the board size
+ * changes.
+ */
+public class GameSnapshot {
+    public final PackedBoard board;
+    public String moves;
+    public String personalBest;
+    public boolean active;
+    public boolean won;
+    // Replaced when a game of another size is copied in
+    public AnimationGrid aGrid;
+    // Bumped every time a game is copied in
+    public long version = 0;
+
+    public GameSnapshot(int sizeX, int sizeY) {
+        board = new PackedBoard(sizeX, sizeY);
+        aGrid = new AnimationGrid(sizeX, sizeY);
+    }
+
+    public void copyFrom(Game game) {
+        board.copyFrom(game.getPackedBoard());
+        fitAnimations();
+        moves = game.getMoves();
+        personalBest = game.personalBest;
+        active = game.isActive();
+        won = game.gameWon();
+        aGrid.copyFrom(game.aGrid);
+        version++;
+    }
+
+    public void copyFrom(GameSnapshot other) {
+        board.copyFrom(other.board);
+        fitAnimations();
+        moves = other.moves;
+        personalBest = other.personalBest;
+        active = other.active;
+        won = other.won;
+        aGrid.copyFrom(other.aGrid);
+        version = other.version;
+    }
+
+    private void fitAnimations() {
+        if (aGrid.getWidth() != board.getWidth() || aGrid.getHeight() != board.getHeight()) {
+            aGrid = new AnimationGrid(board.getWidth(), board.getHeight());
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package io.github.liaob.game2;
+
+import java.util.ArrayList;
+
+public class Grid {
+    // Read freely, but write through insertTile, removeTile and moveTile so
+    // the occupancy mask stays in step
+    public Tile[][] field;
+
+    // One bit per cell, numbered y * width + x as in BitBoard; fits 8x8
+    private long occupied = 0;
+    private final long allCells;
+    private int availableCells;
+
+    // Tiles removed by merges, handed out again by obtainTile
+    private final Tile[] spareTiles;
+    private int spareCount = 0;
+
+    private final SplitMix64 random;
+
+    public Grid(int sizeX, int sizeY) {
+        this(sizeX, sizeY, new SplitMix64());
+    }
+
+    /**
+     * A grid whose random cells come from random, so a seeded generator
+     * makes the spawns reproducible.
+     */
+    public Grid(int sizeX, int sizeY, SplitMix64 random) {
+        this.random = random;
+        field = new Tile[sizeX][sizeY];
+        spareTiles = new Tile[sizeX * sizeY];
+        allCells = sizeX * sizeY == 64 ? -1L : (1L << (sizeX * sizeY)) - 1;
+        clearGrid();
+    }
+
+    public Cell randomAvailableCell() {
+        int index = randomAvailableIndex();
+        if (index != -1) {
+            return new Cell(index % field.length, index / field.length);
+        }
+        return null;
+    }
+
+    /**
+     * Picks a random empty cell without allocating. Cells are numbered
+     * row by row, {@code y * width + x}, as in {@link BitBoard}; returns -1
+     * when the grid is full.
+     */
+    public int randomAvailableIndex() {
+        if (availableCells == 0) {
+            return -1;
+        }
+        return selectBit(~occupied & allCells, random.nextInt(availableCells));
+    }
+
+    public int countAvailableCells() {
+        return availableCells;
+    }
+
+    // Index of the n-th (from zero) set bit of mask
+    static int selectBit(long mask, int n) {
+        for (int i = 0; i < n; i++) {
+            mask &= mask - 1;
+        }
+        return Long.numberOfTrailingZeros(mask);
+    }
+
+    public ArrayList<Cell> getAvailableCells() {
+        ArrayList<Cell> availableCells = new ArrayList<Cell>();
+        for (int xx = 0; xx < field.length; xx++) {
+            for (int yy = 0; yy < field[0].length; yy++) {
+                if (field[xx][yy] == null) {
+                    availableCells.add(new Cell(xx, yy));
+                }
+            }
+        }
+        return availableCells;
+    }
+
+    public ArrayList<Cell> getNotAvailableCells() {
+        ArrayList<Cell> notAvailableCells = new ArrayList<Cell>();
+        for (int xx = 0; xx < field.length; xx++) {
+            for (int yy = 0; yy < field[0].length; yy++) {
+                if (field[xx][yy] != null) {
+                    notAvailableCells.add(new Cell(xx, yy));
+                }
+            }
+        }
+        return notAvailableCells;
+    }
+
+    public boolean isCellsAvailable() {
+        return availableCells > 0;
+    }
+
+    public boolean isCellAvailable(Cell cell) {
+        return !isCellOccupied(cell);
+    }
+
+    public boolean isCellAvailable(int x, int y) {
+        return !isCellOccupied(x, y);
+    }
+
+    public boolean isCellOccupied(Cell cell) {
+        return cell != null && isCellOccupied(cell.getX(), cell.getY());
+    }
+
+    public boolean isCellOccupied(int x, int y) {
+        return isCellWithinBounds(x, y) && (occupied & bit(x, y)) != 0;
+    }
+
+    public Tile getCellContent(Cell cell) {
+        if (cell != null && isCellWithinBounds(cell)) {
+            return field[cell.getX()][cell.getY()];
+        } else {
+            return null;
+        }
+    }
+
+    public Tile getCellContent(int x, int y) {
+        if (isCellWithinBounds(x, y)) {
+            return field[x][y];
+        } else {
+            return null;
+        }
+    }
+
+    public boolean isCellWithinBounds(Cell cell) {
+        return 0 <= cell.getX() && cell.getX() < field.length
+                && 0 <= cell.getY() && cell.getY() < field[0].length;
+    }
+
+    public boolean isCellWithinBounds(int x, int y) {
+        return 0 <= x && x < field.length && 0 <= y && y < field[0].length;
+    }
+
+    public void insertTile(Tile tile) {
+        setCell(tile.getX(), tile.getY(), tile);
+    }
+
+    public void removeTile(Tile tile) {
+        setCell(tile.getX(), tile.getY(), null);
+    }
+
+    public void moveTile(Tile tile, int x, int y) {
+        setCell(tile.getX(), tile.getY(), null);
+        tile.setX(x);
+        tile.setY(y);
+        setCell(x, y, tile);
+    }
+
+    private void setCell(int x, int y, Tile tile) {
+        if (field[x][y] == null && tile != null) {
+            occupied |= bit(x, y);
+            availableCells--;
+        } else if (field[x][y] != null && tile == null) {
+            occupied &= ~bit(x, y);
+            availableCells++;
+        }
+        field[x][y] = tile;
+    }
+
+    private long bit(int x, int y) {
+        return 1L << (y * field.length + x);
+    }
+
+    public Tile obtainTile(int x, int y, int value) {
+        if (spareCount == 0) {
+            return new Tile(x, y, value);
+        }
+        Tile tile = spareTiles[--spareCount];
+        spareTiles[spareCount] = null;
+        tile.setX(x);
+        tile.setY(y);
+        tile.setValue(value);
+        tile.setMerged(false);
+        return tile;
+    }
+
+    /**
+     * Returns a tile that is no longer on the grid, for reuse by
+     * {@link #obtainTile(int, int, int)}.
+     */
+    public void recycleTile(Tile tile) {
+        if (spareCount < spareTiles.length) {
+            spareTiles[spareCount++] = tile;
+        }
+    }
+
+    public void clearGrid() {
+        for (int xx = 0; xx < field.length; xx++) {
+            for (int yy = 0; yy < field[0].length; yy++) {
+                if (field[xx][yy] != null) {
+                    recycleTile(field[xx][yy]);
+                }
+                field[xx][yy] = null;
+            }
+        }
+        occupied = 0;
+        availableCells = field.length * field[0].length;
+    }
+}
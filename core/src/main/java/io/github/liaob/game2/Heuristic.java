@@ -0,0 +1,8 @@
+package io.github.liaob.game2;
+
+/**
+ * Scores a packed {@link BitBoard} for {@link Expectimax}; higher is better.
+ */
+public interface Heuristic {
+    float evaluate(long board);
+}
@@ -0,0 +1,96 @@
+package io.github.liaob.game2;
+
+import java.util.Arrays;
+
+/**
+ * Records the moves of a game as it is played, so a {@link Replay} can play
+ * it again from its start seed. Recording starts with the next new game; an
+ * undo or redo, which a replay cannot follow, stops it until the one after.
+ */
+public class MoveRecorder implements GameListener {
+
+    private final Game game;
+    private byte[] moves = new byte[256];
+    private int length = 0;
+    private long seed;
+    private boolean recording = false;
+
+    public MoveRecorder(Game game) {
+        this.game = game;
+    }
+
+    /**
+     * Whether the game as it stands can be replayed: a 4x4 game recorded
+     * since it started, with no tile past what a {@link BitBoard} holds,
+     * whose replay ends where the game is.
+     */
+    public boolean canReplay() {
+        if (!recording) {
+            return false;
+        }
+        PackedBoard board = game.getPackedBoard();
+        if (!board.fitsBitBoard()) {
+            return false;
+        }
+        Replay replay = new Replay();
+        replay.start(seed);
+        replay.play(moves, 0, length);
+        return replay.turns == game.turns
+                && replay.board == board.toBitBoard();
+    }
+
+    /**
+     * The start seed of the game recorded, for {@link Replay#start(long)}.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * The directions of the moves recorded, the first {@link #getLength()}
+     * of them.
+     */
+    public byte[] getMoves() {
+        return moves;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public void onNewGame() {
+        seed = game.getStartSeed();
+        length = 0;
+        recording = true;
+    }
+
+    @Override
+    public void onMove(int direction, boolean moved) {
+        if (!moved || !recording) {
+            return;
+        }
+        if (length == moves.length) {
+            moves = Arrays.copyOf(moves, length * 2);
+        }
+        moves[length++] = (byte) direction;
+    }
+
+    @Override
+    public void onUndo() {
+        recording = false;
+    }
+
+    @Override
+    public void onRedo() {
+        recording = false;
+    }
+
+    @Override
+    public void onGameEnd(boolean won) {
+    }
+
+    @Override
+    public void onPersonalBest(String personalBest) {
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.liaob.game2;
+
+/**
+ * Slide results for every possible 16-bit row, built once on first use and
+ * shared by every board. Each entry holds the resulting row in its low 16
+ * bits and {@link #CHANGED} when the slide moved or merged anything; the
+ * score tables hold the sum of the merged tile values.
+ */
+final class MoveTables {
+
+    static final int ROWS = 1 << 16;
+    static final int ROW_MASK = 0xFFFF;
+    static final int CHANGED = 1 << 16;
+
+    static final int[] LEFT = new int[ROWS];
+    static final int[] RIGHT = new int[ROWS];
+    static final int[] LEFT_SCORE = new int[ROWS];
+    static final int[] RIGHT_SCORE = new int[ROWS];
+
+    static {
+        for (int row = 0; row < ROWS; row++) {
+            int left = BitBoard.slideRowLeft(row);
+            LEFT[row] = left | (left != row ? CHANGED : 0);
+            LEFT_SCORE[row] = mergeScore(row);
+
+            int reversed = BitBoard.reverseRow(row);
+            int right = BitBoard.reverseRow(BitBoard.slideRowLeft(reversed));
+            RIGHT[row] = right | (right != row ? CHANGED : 0);
+            RIGHT_SCORE[row] = mergeScore(reversed);
+        }
+    }
+
+    private MoveTables() {
+    }
+
+    // Replays the left slide and adds up the value of every merged tile.
+    private static int mergeScore(int row) {
+        int score = 0;
+        int pending = 0;
+        for (int i = 0; i < BitBoard.SIZE; i++) {
+            int exponent = (row >>> (i << 2)) & 0xF;
+            if (exponent == 0) {
+                continue;
+            }
+            if (exponent == pending) {
+                score += 1 << Math.min(exponent + 1, BitBoard.MAX_EXPONENT);
+                pending = 0;
+            } else {
+                pending = exponent;
+            }
+        }
+        return score;
+    }
+}
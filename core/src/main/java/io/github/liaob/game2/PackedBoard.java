@@ -0,0 +1,421 @@
+package io.github.liaob.game2;
+
+/**
+ * A board of any size from {@link #MIN_SIZE} to {@link #MAX_SIZE} cells a
+ * side, packed one byte per cell: the base-2 exponent of its tile (0 means
+ * empty), cell (x, y) at index y * width + x, eight cells to a long. A byte
+ * holds every tile up to {@link #MAX_EXPONENT}, so the large boards keep
+ * tiles past the 32768 a {@link BitBoard} nibble stops at.
+ *
+ * A 4x4 board whose tiles all fit a nibble moves through the BitBoard lookup
+ * tables; other boards, and 4x4 ones with larger tiles, slide their lines
+ * one cell at a time.
+ *
+ * Boards are mutable and reusable, so games and snapshots can keep one and
+ * refill it without allocating.
+ */
+public final class PackedBoard {
+
+    public static final int MIN_SIZE = 3;
+    public static final int MAX_SIZE = 8;
+    // Tiles hold int values, so 2^30 is as far as a game can go
+    public static final int MAX_EXPONENT = 30;
+    static final int MAX_WORDS = MAX_SIZE * MAX_SIZE / 8;
+
+    private static final long BYTE_LOW_BITS = 0x0101010101010101L;
+    private static final long BYTE_HIGH_NIBBLES = 0xF0F0F0F0F0F0F0F0L;
+
+    private int width;
+    private int height;
+    private int cells;
+    private int words;
+    private final long[] data = new long[MAX_WORDS];
+    // The low bit of every byte in use, per word
+    private final long[] cellBits = new long[MAX_WORDS];
+    // One line of a move, reused
+    private final int[] line = new int[MAX_SIZE];
+
+    public PackedBoard(int width, int height) {
+        setSize(width, height);
+    }
+
+    /**
+     * Resizes the board and empties it.
+     */
+    public void setSize(int width, int height) {
+        if (width < MIN_SIZE || width > MAX_SIZE || height < MIN_SIZE || height > MAX_SIZE) {
+            throw new IllegalArgumentException("size " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        cells = width * height;
+        words = wordCount(width, height);
+        for (int i = 0; i < MAX_WORDS; i++) {
+            int used = Math.max(0, Math.min(8, cells - (i << 3)));
+            cellBits[i] = used == 8 ? BYTE_LOW_BITS
+                    : BYTE_LOW_BITS & ((1L << (used << 3)) - 1);
+        }
+        clear();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getCells() {
+        return cells;
+    }
+
+    /**
+     * How many longs hold the cells, for storing the board elsewhere.
+     */
+    public int getWordCount() {
+        return words;
+    }
+
+    /**
+     * How many longs hold the cells of a width x height board.
+     */
+    public static int wordCount(int width, int height) {
+        return (width * height + 7) >>> 3;
+    }
+
+    public long getWord(int i) {
+        return data[i];
+    }
+
+    public void setWord(int i, long word) {
+        data[i] = word;
+    }
+
+    public void clear() {
+        for (int i = 0; i < MAX_WORDS; i++) {
+            data[i] = 0;
+        }
+    }
+
+    public void copyFrom(PackedBoard other) {
+        if (width != other.width || height != other.height) {
+            setSize(other.width, other.height);
+        }
+        System.arraycopy(other.data, 0, data, 0, words);
+    }
+
+    public int getExponent(int index) {
+        return (int) (data[index >>> 3] >>> ((index & 7) << 3)) & 0xFF;
+    }
+
+    public int getExponent(int x, int y) {
+        return getExponent(y * width + x);
+    }
+
+    public void setExponent(int index, int exponent) {
+        if (exponent < 0 || exponent > MAX_EXPONENT) {
+            throw new IllegalArgumentException("exponent " + exponent);
+        }
+        int shift = (index & 7) << 3;
+        data[index >>> 3] = (data[index >>> 3] & ~(0xFFL << shift))
+                | ((long) exponent << shift);
+    }
+
+    public void setExponent(int x, int y, int exponent) {
+        setExponent(y * width + x, exponent);
+    }
+
+    /**
+     * Whether the board is 4x4 with no tile above 32768, so
+     * {@link #toBitBoard()} can pack it.
+     */
+    public boolean fitsBitBoard() {
+        return isBitBoard() && ((data[0] | data[1]) & BYTE_HIGH_NIBBLES) == 0;
+    }
+
+    /**
+     * The 4x4 board as a {@link BitBoard} long. Throws if it does not
+     * {@link #fitsBitBoard() fit} one.
+     */
+    public long toBitBoard() {
+        if (!fitsBitBoard()) {
+            throw new IllegalStateException("not a BitBoard: " + this);
+        }
+        return nibbles();
+    }
+
+    public void fromBitBoard(long board) {
+        setSize(BitBoard.SIZE, BitBoard.SIZE);
+        data[0] = unpack(board);
+        data[1] = unpack(board >>> 32);
+    }
+
+    /**
+     * Fills the board from grid, which must have the same size.
+     */
+    public void fromGrid(Grid grid) {
+        clear();
+        for (int xx = 0; xx < width; xx++) {
+            for (int yy = 0; yy < height; yy++) {
+                Tile tile = grid.field[xx][yy];
+                if (tile != null) {
+                    setExponent(xx, yy, Integer.numberOfTrailingZeros(tile.getValue()));
+                }
+            }
+        }
+    }
+
+    public void toGrid(Grid grid) {
+        grid.clearGrid();
+        for (int xx = 0; xx < width; xx++) {
+            for (int yy = 0; yy < height; yy++) {
+                int exponent = getExponent(xx, yy);
+                if (exponent != 0) {
+                    grid.insertTile(grid.obtainTile(xx, yy, 1 << exponent));
+                }
+            }
+        }
+    }
+
+    public int countEmpty() {
+        int empty = 0;
+        for (int i = 0; i < words; i++) {
+            empty += Long.bitCount(emptyBits(i));
+        }
+        return empty;
+    }
+
+    /**
+     * Index of the n-th (from zero) empty cell in index order, or -1.
+     */
+    public int emptyCell(int n) {
+        for (int i = 0; i < words; i++) {
+            long empty = emptyBits(i);
+            int count = Long.bitCount(empty);
+            if (n < count) {
+                return (i << 3) + (Grid.selectBit(empty, n) >>> 3);
+            }
+            n -= count;
+        }
+        return -1;
+    }
+
+    public int maxExponent() {
+        int max = 0;
+        for (int index = 0; index < cells; index++) {
+            max = Math.max(max, getExponent(index));
+        }
+        return max;
+    }
+
+    /**
+     * Slides and merges every tile in direction, as {@link Game#move(int)}
+     * does. Returns whether anything changed.
+     */
+    public boolean move(int direction) {
+        if (isBitBoard() && belowNibbleMax(data[0]) && belowNibbleMax(data[1])) {
+            // No merge can pass the nibble limit
+            long board = nibbles();
+            long moved = BitBoard.move(board, direction);
+            data[0] = unpack(moved);
+            data[1] = unpack(moved >>> 32);
+            return moved != board;
+        }
+        boolean changed = false;
+        int lines = direction % 2 == 0 ? width : height;
+        for (int l = 0; l < lines; l++) {
+            changed |= slideLine(lineStart(direction, l), lineStep(direction), lineLength(direction));
+        }
+        return changed;
+    }
+
+    public boolean canMove(int direction) {
+        if (fitsBitBoard()) {
+            return BitBoard.canMove(nibbles(), direction);
+        }
+        int lines = direction % 2 == 0 ? width : height;
+        int step = lineStep(direction);
+        int length = lineLength(direction);
+        for (int l = 0; l < lines; l++) {
+            int index = lineStart(direction, l);
+            int previous = getExponent(index);
+            for (int i = 1; i < length; i++) {
+                index += step;
+                int exponent = getExponent(index);
+                // A tile with a gap or its twin on the side it moves to
+                if (exponent != 0 && (previous == 0 || previous == exponent)) {
+                    return true;
+                }
+                previous = exponent;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether any move is left, the loss check.
+     */
+    public boolean movesAvailable() {
+        if (fitsBitBoard()) {
+            return BitBoard.movesAvailable(nibbles());
+        }
+        if (countEmpty() != 0) {
+            return true;
+        }
+        for (int yy = 0; yy < height; yy++) {
+            for (int xx = 0; xx < width; xx++) {
+                int exponent = getExponent(xx, yy);
+                if ((xx + 1 < width && getExponent(xx + 1, yy) == exponent)
+                        || (yy + 1 < height && getExponent(xx, yy + 1) == exponent)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof PackedBoard)) {
+            return false;
+        }
+        PackedBoard other = (PackedBoard) o;
+        if (width != other.width || height != other.height) {
+            return false;
+        }
+        for (int i = 0; i < words; i++) {
+            if (data[i] != other.data[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = width * 31 + height;
+        for (int i = 0; i < words; i++) {
+            hash = hash * 31 + data[i];
+        }
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int yy = 0; yy < height; yy++) {
+            for (int xx = 0; xx < width; xx++) {
+                builder.append(Character.forDigit(getExponent(xx, yy), Character.MAX_RADIX));
+            }
+            builder.append(yy + 1 < height ? '/' : ' ');
+        }
+        return builder.toString().trim();
+    }
+
+    private boolean isBitBoard() {
+        return width == BitBoard.SIZE && height == BitBoard.SIZE;
+    }
+
+    private long emptyBits(int word) {
+        long occupied = data[word];
+        occupied |= occupied >>> 4;
+        occupied |= occupied >>> 2;
+        occupied |= occupied >>> 1;
+        return ~(occupied & BYTE_LOW_BITS) & cellBits[word];
+    }
+
+    // Whether every byte of word is below 15, the largest nibble, so merging
+    // two of them still fits one
+    private static boolean belowNibbleMax(long word) {
+        return ((word | (word + BYTE_LOW_BITS)) & BYTE_HIGH_NIBBLES) == 0;
+    }
+
+    // The 4x4 board in the BitBoard layout, if every tile fits a nibble
+    private long nibbles() {
+        return pack(data[0]) | pack(data[1]) << 32;
+    }
+
+    // Eight bytes that each fit a nibble into the low 32 bits, in order
+    private static long pack(long word) {
+        word = (word | word >>> 4) & 0x00FF00FF00FF00FFL;
+        word = (word | word >>> 8) & 0x0000FFFF0000FFFFL;
+        return (word | word >>> 16) & 0xFFFFFFFFL;
+    }
+
+    private static long unpack(long nibbles) {
+        long word = nibbles & 0xFFFFFFFFL;
+        word = (word | word << 16) & 0x0000FFFF0000FFFFL;
+        word = (word | word << 8) & 0x00FF00FF00FF00FFL;
+        return (word | word << 4) & 0x0F0F0F0F0F0F0F0FL;
+    }
+
+    // Lines run from the wall the tiles move towards: columns for up and
+    // down, rows for left and right
+    private int lineStart(int direction, int l) {
+        switch (direction) {
+            case 0:
+                return l;
+            case 1:
+                return l * width + width - 1;
+            case 2:
+                return (height - 1) * width + l;
+            case 3:
+                return l * width;
+            default:
+                throw new IllegalArgumentException("direction " + direction);
+        }
+    }
+
+    private int lineStep(int direction) {
+        switch (direction) {
+            case 0:
+                return width;
+            case 1:
+                return -1;
+            case 2:
+                return -width;
+            default:
+                return 1;
+        }
+    }
+
+    private int lineLength(int direction) {
+        return direction % 2 == 0 ? height : width;
+    }
+
+    // BitBoard.slideRowLeft along one line
+    private boolean slideLine(int start, int step, int length) {
+        int target = 0;
+        int pending = 0;
+        int index = start;
+        for (int i = 0; i < length; i++, index += step) {
+            int exponent = getExponent(index);
+            if (exponent == 0) {
+                continue;
+            }
+            if (exponent == pending) {
+                line[target++] = exponent + 1;
+                pending = 0;
+            } else {
+                if (pending != 0) {
+                    line[target++] = pending;
+                }
+                pending = exponent;
+            }
+        }
+        if (pending != 0) {
+            line[target++] = pending;
+        }
+        boolean changed = false;
+        index = start;
+        for (int i = 0; i < length; i++, index += step) {
+            int exponent = i < target ? line[i] : 0;
+            if (getExponent(index) != exponent) {
+                setExponent(index, exponent);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+}
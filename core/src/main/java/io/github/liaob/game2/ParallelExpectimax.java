@@ -0,0 +1,231 @@
+package io.github.liaob.game2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * {@link Expectimax} spread over a ForkJoinPool. The root moves and the top
+ * {@code splitLevels} chance nodes below them are forked as separate tasks;
+ * everything deeper is searched sequentially by a per-thread Expectimax.
+ * All threads share one {@link TranspositionTable}.
+ *
+ * ForkJoinPool needs API 21 on Android.
+ */
+public class ParallelExpectimax {
+
+    public static final int DEFAULT_SPLIT_LEVELS = 1;
+
+    private final ForkJoinPool pool;
+    private final TranspositionTable table;
+    private final long budgetNanos;
+    private final int splitLevels;
+    private final ThreadLocal<Expectimax> workers;
+
+    private volatile long deadline;
+    private volatile boolean outOfTime;
+    private int searchedDepth;
+
+    public ParallelExpectimax(int threads) {
+        this(threads, new DefaultHeuristic(), Expectimax.DEFAULT_BUDGET_NANOS,
+                DEFAULT_SPLIT_LEVELS);
+    }
+
+    public ParallelExpectimax(int threads, final Heuristic heuristic,
+                              final long budgetNanos, int splitLevels) {
+        this.pool = new ForkJoinPool(threads);
+        this.table = new TranspositionTable(20);
+        this.budgetNanos = budgetNanos;
+        this.splitLevels = splitLevels;
+        this.workers = new ThreadLocal<Expectimax>() {
+            @Override
+            protected Expectimax initialValue() {
+                return new Expectimax(heuristic, table, budgetNanos);
+            }
+        };
+    }
+
+    public int bestMove(Grid grid) {
+        return bestMove(BitBoard.fromGrid(grid));
+    }
+
+    /**
+     * Returns the direction to play, or -1 if no move changes the board.
+     */
+    public int bestMove(long board) {
+        return search(board, Expectimax.MAX_DEPTH, System.nanoTime() + budgetNanos);
+    }
+
+    /**
+     * Searches exactly {@code depth} levels with no time limit.
+     */
+    public int bestMove(long board, int depth) {
+        return search(board, depth, Long.MAX_VALUE);
+    }
+
+    public int getSearchedDepth() {
+        return searchedDepth;
+    }
+
+    public int getThreads() {
+        return pool.getParallelism();
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private int search(long board, int maxDepth, long deadline) {
+        this.deadline = deadline;
+        outOfTime = false;
+        searchedDepth = 0;
+        table.clear();
+
+        int best = -1;
+        for (int direction = 0; direction < 4 && best == -1; direction++) {
+            if (BitBoard.canMove(board, direction)) {
+                best = direction;
+            }
+        }
+        int firstDepth = deadline == Long.MAX_VALUE ? maxDepth : 1;
+        for (int depth = firstDepth; depth <= maxDepth && best != -1; depth++) {
+            int candidate = pool.invoke(new RootTask(board, depth));
+            if (outOfTime) {
+                break;
+            }
+            best = candidate;
+            searchedDepth = depth;
+        }
+        return best;
+    }
+
+    private final class RootTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final long board;
+        private final int depth;
+
+        RootTask(long board, int depth) {
+            this.board = board;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Integer compute() {
+            List<ChanceTask> tasks = new ArrayList<ChanceTask>(4);
+            int[] directions = new int[4];
+            for (int direction = 0; direction < 4; direction++) {
+                long moved = BitBoard.move(board, direction);
+                if (moved != board) {
+                    directions[tasks.size()] = direction;
+                    tasks.add(new ChanceTask(moved, depth - 1, 1f, splitLevels));
+                }
+            }
+            invokeAll(tasks);
+
+            int best = -1;
+            float bestScore = -1;
+            for (int i = 0; i < tasks.size(); i++) {
+                float score = tasks.get(i).join();
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = directions[i];
+                }
+            }
+            return best;
+        }
+    }
+
+    private final class ChanceTask extends RecursiveTask<Float> {
+        private static final long serialVersionUID = 1L;
+
+        private final long board;
+        private final int depth;
+        private final float probability;
+        private final int levels;
+
+        ChanceTask(long board, int depth, float probability, int levels) {
+            this.board = board;
+            this.depth = depth;
+            this.probability = probability;
+            this.levels = levels;
+        }
+
+        @Override
+        protected Float compute() {
+            if (outOfTime) {
+                return 0f;
+            }
+            if (levels == 0 || depth <= 1
+                    || probability < Expectimax.MIN_PROBABILITY) {
+                Expectimax worker = workers.get();
+                float score = worker.searchChance(board, depth, probability, deadline);
+                if (worker.isOutOfTime()) {
+                    outOfTime = true;
+                }
+                return score;
+            }
+
+            float cached = table.get(board, depth);
+            if (!Float.isNaN(cached)) {
+                return cached;
+            }
+
+            int empty = BitBoard.countEmpty(board);
+            float childProbability = probability / empty;
+            List<MaxTask> tasks = new ArrayList<MaxTask>(empty);
+            for (int index = 0; index < BitBoard.CELLS; index++) {
+                if (BitBoard.getExponent(board, index) == 0) {
+                    long spawned = BitBoard.spawn(board, index, Expectimax.SPAWN_EXPONENT);
+                    tasks.add(new MaxTask(spawned, depth, childProbability, levels));
+                }
+            }
+            invokeAll(tasks);
+
+            float total = 0;
+            for (int i = 0; i < tasks.size(); i++) {
+                total += tasks.get(i).join();
+            }
+            float score = total / empty;
+            if (!outOfTime) {
+                table.put(board, depth, score);
+            }
+            return score;
+        }
+    }
+
+    private final class MaxTask extends RecursiveTask<Float> {
+        private static final long serialVersionUID = 1L;
+
+        private final long board;
+        private final int depth;
+        private final float probability;
+        private final int levels;
+
+        MaxTask(long board, int depth, float probability, int levels) {
+            this.board = board;
+            this.depth = depth;
+            this.probability = probability;
+            this.levels = levels;
+        }
+
+        @Override
+        protected Float compute() {
+            List<ChanceTask> tasks = new ArrayList<ChanceTask>(4);
+            for (int direction = 0; direction < 4; direction++) {
+                long moved = BitBoard.move(board, direction);
+                if (moved != board) {
+                    tasks.add(new ChanceTask(moved, depth - 1, probability, levels - 1));
+                }
+            }
+            invokeAll(tasks);
+
+            float best = 0;
+            for (int i = 0; i < tasks.size(); i++) {
+                best = Math.max(best, tasks.get(i).join());
+            }
+            return best;
+        }
+    }
+}
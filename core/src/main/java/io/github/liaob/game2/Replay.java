@@ -0,0 +1,98 @@
+package io.github.liaob.game2;
+
+/**
+ * Plays recorded games again from their seed and moves. The rules are those
+ * of {@link Game#move(int)} and its spawns, drawn from the generator in the
+ * same order, but worked on a {@link BitBoard} with no tiles, listeners or
+ * animations, so a core replays millions of moves a second.
+ *
+ * A replay ends up where the recorded game did, which makes it a check on
+ * archived games as well as a cheap way to run analytics over them. Only 4x4
+ * games, which fit a BitBoard, can be replayed.
+ */
+public class Replay {
+
+    private static final long NIBBLE_LOW_BITS = 0x1111111111111111L;
+    private static final int SPAWN_EXPONENT = 1;
+    private static final int WIN_EXPONENT =
+            Integer.numberOfTrailingZeros(Game.startingMaxValue);
+
+    public long board;
+    public long turns;
+    public int gameState;
+
+    private final SplitMix64 random = new SplitMix64(0);
+
+    /**
+     * Starts the game Game.newGame starts when its generator is in state
+     * seed, as returned by {@link Game#getStartSeed()}.
+     */
+    public void start(long seed) {
+        random.setState(seed);
+        board = 0;
+        turns = 0;
+        gameState = Game.GAME_NORMAL;
+        spawn();
+        spawn();
+    }
+
+    /**
+     * Plays one move; returns false if it did not change the board, which
+     * like in Game uses up no turn and no random draw.
+     */
+    public boolean move(int direction) {
+        if (!isActive()) {
+            return false;
+        }
+        long moved = BitBoard.move(board, direction);
+        if (moved == board) {
+            return false;
+        }
+        board = moved;
+        turns++;
+        if (BitBoard.maxExponent(board) >= WIN_EXPONENT) {
+            gameState += Game.GAME_WIN;
+        }
+        spawn();
+        if (!isWon() && !BitBoard.movesAvailable(board)) {
+            gameState = Game.GAME_LOST;
+        }
+        return true;
+    }
+
+    /**
+     * Plays moves[offset] to moves[offset + length - 1], directions as in
+     * Game, and returns how many of them changed the board.
+     */
+    public int play(byte[] moves, int offset, int length) {
+        int played = 0;
+        for (int i = offset; i < offset + length; i++) {
+            if (move(moves[i])) {
+                played++;
+            }
+        }
+        return played;
+    }
+
+    public boolean isActive() {
+        return !isWon() && gameState != Game.GAME_LOST;
+    }
+
+    private boolean isWon() {
+        return gameState > 0 && gameState % 2 != 0;
+    }
+
+    // Grid.randomAvailableIndex on the board: the n-th empty cell, counted
+    // in index order, with n drawn the same way
+    private void spawn() {
+        long occupied = (board | board >>> 1 | board >>> 2 | board >>> 3)
+                & NIBBLE_LOW_BITS;
+        long empty = ~occupied & NIBBLE_LOW_BITS;
+        int count = Long.bitCount(empty);
+        if (count == 0) {
+            return;
+        }
+        int index = Grid.selectBit(empty, random.nextInt(count)) >>> 2;
+        board = BitBoard.spawn(board, index, SPAWN_EXPONENT);
+    }
+}
@@ -0,0 +1,360 @@
+package io.github.liaob.game2;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a game in a file: a {@link SavedGame} snapshot followed by a journal
+ * of the moves made since, two bytes each. A tracked game appends every move
+ * as it happens, so a killed process loses nothing, and every
+ * {@link #COMPACT_EVERY} entries the journal is folded into a new snapshot.
+ * New games, undos and redos, which a journal could not replay on its own,
+ * take a new snapshot straight away.
+ *
+ * Callers only copy state and return; a background thread does the writing.
+ * Snapshots go to a temporary file that is synced and renamed over the old
+ * one, so the file always holds a complete snapshot; journal entries are
+ * appended in batches through a FileChannel. When a write fails, the entries
+ * it held are folded into a new snapshot that the next write retries, so
+ * the journal is only ever appended to behind a snapshot that is in place.
+ *
+ * The file is only read once: after that the store keeps the latest state in
+ * memory, so an app keeps one store for the whole process and games that
+ * come and go, like those of a recreated activity, load from memory.
+ */
+public class SaveStore implements GameListener {
+
+    public interface ErrorListener {
+        /**
+         * Called on the writer thread when a write fails. The last complete
+         * snapshot stays in place, and the next write retries with the
+         * state as it is then.
+         */
+        void onSaveFailed(IOException e);
+    }
+
+    // Entry: direction << 6 | spawn cell, then the spawn's exponent
+    static final int ENTRY_SIZE = 2;
+    static final int COMPACT_EVERY = 256;
+
+    private final File file;
+    private final File tempFile;
+    private final ExecutorService writer;
+    private final Runnable writeTask = new Runnable() {
+        @Override
+        public void run() {
+            writePending();
+        }
+    };
+
+    // Shared with the writer thread; guarded by lock
+    private final Object lock = new Object();
+    private volatile ErrorListener errorListener;
+    private final SavedGame snapshot = new SavedGame();
+    private boolean snapshotPending = false;
+    private final byte[] pendingEntries = new byte[COMPACT_EVERY * ENTRY_SIZE];
+    private int pendingLength = 0;
+    private boolean writeScheduled = false;
+    // The state last saved or journaled in this process
+    private final SavedGame current = new SavedGame();
+    private boolean hasCurrent = false;
+    // Whether the file was read, whatever it held
+    private boolean fileRead = false;
+
+    // Only touched on the thread that plays the game
+    private Game game;
+    private boolean hasSnapshot = false;
+    private int entriesSinceSnapshot = 0;
+
+    // Only touched on the writer thread
+    private final ByteBuffer writeBuffer =
+            ByteBuffer.allocate(SavedGame.MAX_SIZE + COMPACT_EVERY * ENTRY_SIZE);
+    private FileOutputStream journal = null;
+
+    public SaveStore(File file) {
+        this.file = file;
+        this.tempFile = new File(file.getPath() + ".tmp");
+        writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "SaveStore");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Reports failed writes to listener, or to no one if it is null.
+     */
+    public void setErrorListener(ErrorListener listener) {
+        errorListener = listener;
+    }
+
+    /**
+     * Saves every change to game from now on.
+     */
+    public void track(Game game) {
+        if (this.game != null) {
+            this.game.removeListener(this);
+        }
+        this.game = game;
+        game.addListener(this);
+    }
+
+    /**
+     * Stops saving the changes to game, if it is the game tracked.
+     */
+    public void untrack(Game game) {
+        if (this.game == game) {
+            game.removeListener(this);
+            this.game = null;
+        }
+    }
+
+    /**
+     * Snapshots game, replacing the journal.
+     */
+    public void save(Game game) {
+        synchronized (lock) {
+            snapshot.copyFrom(game);
+            current.copyFrom(game);
+            hasCurrent = true;
+            snapshotPending = true;
+            pendingLength = 0;
+            scheduleWrite();
+        }
+        hasSnapshot = true;
+        entriesSinceSnapshot = 0;
+    }
+
+    private void append(int first, int second) {
+        if (!hasSnapshot || entriesSinceSnapshot >= COMPACT_EVERY) {
+            save(game);
+            return;
+        }
+        synchronized (lock) {
+            pendingEntries[pendingLength++] = (byte) first;
+            pendingEntries[pendingLength++] = (byte) second;
+            current.copyFrom(game);
+            hasCurrent = true;
+            scheduleWrite();
+        }
+        entriesSinceSnapshot++;
+    }
+
+    // Called holding lock
+    private void scheduleWrite() {
+        if (!writeScheduled) {
+            writeScheduled = true;
+            writer.execute(writeTask);
+        }
+    }
+
+    /**
+     * Reads the file on the writer thread, unless it was read or a state was
+     * saved already, then runs done on that thread. load does not touch the
+     * disk afterwards.
+     */
+    public void preload(final Runnable done) {
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                loadFile();
+                done.run();
+            }
+        });
+    }
+
+    /**
+     * Puts game in the saved state: the state last saved or journaled in this
+     * process if there is one, otherwise the file's snapshot with its journal
+     * replayed. Returns false, leaving game alone, when there is nothing
+     * valid to load. Reads the file, unless {@link #preload} did.
+     */
+    public boolean load(Game game) {
+        loadFile();
+        synchronized (lock) {
+            if (!hasCurrent) {
+                return false;
+            }
+            current.applyTo(game);
+            return true;
+        }
+    }
+
+    // Makes the file's state current, unless there is a current state
+    // already. Entries journaled from here on go after a new snapshot.
+    private void loadFile() {
+        synchronized (lock) {
+            if (hasCurrent || fileRead) {
+                return;
+            }
+        }
+        ByteBuffer buffer = readFile();
+        SavedGame saved = new SavedGame();
+        if (buffer == null || !saved.read(buffer)) {
+            synchronized (lock) {
+                fileRead = true;
+            }
+            return;
+        }
+
+        // Replay on a silent copy, so listeners see one restore rather than
+        // every move again
+        Game replay = new Game(false);
+        saved.applyTo(replay);
+        while (buffer.remaining() >= ENTRY_SIZE) {
+            int first = buffer.get() & 0xFF;
+            int second = buffer.get() & 0xFF;
+            replay.replayMove(first >> 6, first & 0x3F, 1 << second);
+        }
+        synchronized (lock) {
+            fileRead = true;
+            if (!hasCurrent) {
+                current.copyFrom(replay);
+                hasCurrent = true;
+            }
+        }
+    }
+
+    /**
+     * Finishes the outstanding writes and stops the writer thread, blocking
+     * until the last one is synced. For tools and tests that are about to
+     * exit; an app keeps its store open instead.
+     */
+    public void close() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        closeQuietly(journal);
+    }
+
+    @Override
+    public void onNewGame() {
+        save(game);
+    }
+
+    @Override
+    public void onMove(int direction, boolean moved) {
+        if (moved) {
+            append(direction << 6 | game.getLastSpawnIndex() & 0x3F,
+                    Integer.numberOfTrailingZeros(game.getLastSpawnValue()));
+        }
+    }
+
+    @Override
+    public void onUndo() {
+        // The state undone to may predate the snapshot
+        save(game);
+    }
+
+    @Override
+    public void onRedo() {
+        save(game);
+    }
+
+    @Override
+    public void onGameEnd(boolean won) {
+    }
+
+    @Override
+    public void onPersonalBest(String personalBest) {
+    }
+
+    private ByteBuffer readFile() {
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(),
+                    SavedGame.MAX_SIZE + COMPACT_EVERY * ENTRY_SIZE));
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // Keep reading until the buffer is full
+            }
+            buffer.flip();
+            return buffer;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    private void writePending() {
+        boolean writeSnapshot;
+        writeBuffer.clear();
+        synchronized (lock) {
+            writeSnapshot = snapshotPending;
+            if (writeSnapshot) {
+                snapshot.write(writeBuffer);
+            }
+            writeBuffer.put(pendingEntries, 0, pendingLength);
+            snapshotPending = false;
+            pendingLength = 0;
+            writeScheduled = false;
+        }
+        writeBuffer.flip();
+
+        try {
+            if (writeSnapshot) {
+                // The journal belongs to the snapshot being replaced
+                closeQuietly(journal);
+                journal = null;
+                FileOutputStream out = new FileOutputStream(tempFile);
+                try {
+                    write(out.getChannel(), writeBuffer);
+                    out.getChannel().force(true);
+                } finally {
+                    out.close();
+                }
+                if (!tempFile.renameTo(file)) {
+                    throw new IOException("Could not replace " + file);
+                }
+            } else {
+                if (journal == null) {
+                    journal = new FileOutputStream(file, true);
+                }
+                write(journal.getChannel(), writeBuffer);
+            }
+        } catch (IOException e) {
+            // The file may end anywhere now; start over from a snapshot of
+            // the latest state, which holds every move the failed write did
+            closeQuietly(journal);
+            journal = null;
+            synchronized (lock) {
+                snapshot.copyFrom(current);
+                snapshotPending = true;
+                pendingLength = 0;
+            }
+            ErrorListener listener = errorListener;
+            if (listener != null) {
+                listener.onSaveFailed(e);
+            }
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Nothing left to recover
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package io.github.liaob.game2;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+
+/**
+ * The state needed to resume a game, in a compact binary form: magic, format
+ * version, board width and height, turns, game state, random generator state
+ * and the {@link PackedBoard} words, followed by a CRC32 of everything before
+ * it. All fields are little-endian.
+ */
+public class SavedGame {
+
+    static final int MAGIC = 0x38343032; // "2048"
+    // 3: a byte per cell rather than a nibble
+    static final int VERSION = 3;
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 8 + 4 + 8;
+    public static final int MAX_SIZE = HEADER_SIZE + PackedBoard.MAX_WORDS * 8 + 8;
+
+    public final PackedBoard board = new PackedBoard(Game.DEFAULT_SIZE, Game.DEFAULT_SIZE);
+    public long turns;
+    public int gameState;
+    public long rngState;
+
+    private final CRC32 crc = new CRC32();
+
+    public void copyFrom(Game game) {
+        board.copyFrom(game.getPackedBoard());
+        turns = game.turns;
+        gameState = game.gameState;
+        rngState = game.getRandom().getState();
+    }
+
+    public void copyFrom(SavedGame other) {
+        board.copyFrom(other.board);
+        turns = other.turns;
+        gameState = other.gameState;
+        rngState = other.rngState;
+    }
+
+    public void applyTo(Game game) {
+        game.restore(board, turns, gameState);
+        game.getRandom().setState(rngState);
+    }
+
+    /**
+     * Bytes the record takes for the current board.
+     */
+    public int size() {
+        return HEADER_SIZE + board.getWordCount() * 8 + 8;
+    }
+
+    /**
+     * Appends the record, {@link #size()} bytes, to out, which must be a heap
+     * buffer.
+     */
+    public void write(ByteBuffer out) {
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        int start = out.position();
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putInt(board.getWidth());
+        out.putInt(board.getHeight());
+        out.putLong(turns);
+        out.putInt(gameState);
+        out.putLong(rngState);
+        for (int i = 0; i < board.getWordCount(); i++) {
+            out.putLong(board.getWord(i));
+        }
+        out.putLong(checksum(out.array(), out.arrayOffset() + start, out.position() - start));
+    }
+
+    /**
+     * Decodes the record at the position of in, a heap buffer, and moves past
+     * it. Returns false, leaving this unchanged, when in does not hold a
+     * valid record.
+     */
+    public boolean read(ByteBuffer in) {
+        in.order(ByteOrder.LITTLE_ENDIAN);
+        int start = in.position();
+        if (in.remaining() < 8 || in.getInt(start) != MAGIC) {
+            return false;
+        }
+        if (in.getInt(start + 4) != VERSION || in.remaining() < HEADER_SIZE) {
+            return false;
+        }
+        int width = in.getInt(start + 8);
+        int height = in.getInt(start + 12);
+        if (width < PackedBoard.MIN_SIZE || width > PackedBoard.MAX_SIZE
+                || height < PackedBoard.MIN_SIZE || height > PackedBoard.MAX_SIZE) {
+            return false;
+        }
+        int words = PackedBoard.wordCount(width, height);
+        int size = HEADER_SIZE + words * 8 + 8;
+        if (in.remaining() < size || in.getLong(start + size - 8)
+                != checksum(in.array(), in.arrayOffset() + start, size - 8)) {
+            return false;
+        }
+        in.position(start + 16);
+        turns = in.getLong();
+        gameState = in.getInt();
+        rngState = in.getLong();
+        board.setSize(width, height);
+        for (int i = 0; i < words; i++) {
+            board.setWord(i, in.getLong());
+        }
+        in.getLong();
+        return true;
+    }
+
+    private long checksum(byte[] bytes, int offset, int length) {
+        crc.reset();
+        crc.update(bytes, offset, length);
+        return crc.getValue();
+    }
+}
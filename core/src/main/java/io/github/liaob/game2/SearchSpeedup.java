@@ -0,0 +1,96 @@
+package io.github.liaob.game2;
+
+import java.util.Random;
+
+/**
+ * Times a fixed-depth {@link ParallelExpectimax} search over the same set of
+ * boards with 1, 2, 4 and all available threads and prints the speedup over
+ * one thread.
+ *
+ * Usage: SearchSpeedup [depth] [boards]
+ */
+public class SearchSpeedup {
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        long[] boards = sampleBoards(count, new Random(2048));
+
+        // Warm up the JIT before anything is timed
+        ParallelExpectimax warmup = new ParallelExpectimax(cores);
+        for (long board : boards) {
+            warmup.bestMove(board, depth);
+        }
+        warmup.shutdown();
+
+        System.out.println("depth " + depth + ", " + count + " boards, "
+                + cores + " cores");
+        System.out.println("threads\tms/board\tspeedup\tefficiency");
+        double baseline = 0;
+        int previous = 0;
+        for (int threads : new int[]{1, 2, 4, cores}) {
+            if (threads <= previous) {
+                continue;
+            }
+            previous = threads;
+
+            ParallelExpectimax search = new ParallelExpectimax(threads);
+            long start = System.nanoTime();
+            for (long board : boards) {
+                search.bestMove(board, depth);
+            }
+            double millis = (System.nanoTime() - start) / 1e6 / count;
+            search.shutdown();
+
+            if (baseline == 0) {
+                baseline = millis;
+            }
+            double speedup = baseline / millis;
+            System.out.println(threads + "\t" + format(millis) + "\t"
+                    + format(speedup) + "x\t" + format(100 * speedup / threads) + "%");
+        }
+    }
+
+    // Mid-game positions reached by playing the first legal move in a
+    // rotating order, which keeps the boards varied but reproducible.
+    static long[] sampleBoards(int count, Random random) {
+        long[] boards = new long[count];
+        for (int i = 0; i < count; i++) {
+            long board = 0;
+            int turns = 40 + random.nextInt(160);
+            for (int turn = 0; turn < turns; turn++) {
+                board = spawnRandom(board, random);
+                long moved = board;
+                for (int attempt = 0; attempt < 4 && moved == board; attempt++) {
+                    moved = BitBoard.move(board, (turn + attempt) & 3);
+                }
+                if (moved == board) {
+                    break;
+                }
+                board = moved;
+            }
+            boards[i] = spawnRandom(board, random);
+        }
+        return boards;
+    }
+
+    private static long spawnRandom(long board, Random random) {
+        int empty = BitBoard.countEmpty(board);
+        if (empty == 0) {
+            return board;
+        }
+        int target = random.nextInt(empty);
+        for (int index = 0; index < BitBoard.CELLS; index++) {
+            if (BitBoard.getExponent(board, index) == 0 && target-- == 0) {
+                return BitBoard.spawn(board, index, Expectimax.SPAWN_EXPONENT);
+            }
+        }
+        return board;
+    }
+
+    private static String format(double value) {
+        return String.valueOf(Math.round(value * 100) / 100.0);
+    }
+}
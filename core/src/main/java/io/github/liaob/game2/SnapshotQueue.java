@@ -0,0 +1,94 @@
+package io.github.liaob.game2;
+
+/**
+ * States of a game waiting to be drawn, in order. Moves change the game at
+ * once, but each one's animations start from where the previous move left
+ * the board; queueing the states lets a renderer play them one after the
+ * other instead of cutting the running animation off, and speed up while it
+ * is behind.
+ *
+ * The queue holds a fixed number of states, in preallocated snapshots. When
+ * it is full the oldest state is fast-forwarded: its animations are dropped,
+ * so it shows its final board at once and the state after it animates from a
+ * board that was on screen. A burst of swipes skips the animations at its
+ * start rather than falling further and further behind. A fast-forwarded
+ * state waits in one spare snapshot; when that is taken too, it gives way to
+ * the next state, which is fast-forwarded in its place.
+ *
+ * Not thread-safe.
+ */
+public class SnapshotQueue {
+
+    // Enough for a burst of swipes at ten a second to finish animating
+    public static final int CAPACITY = 4;
+
+    private final GameSnapshot[] snapshots;
+    private int head = 0;
+    private int size = 0;
+
+    public SnapshotQueue(int capacity, int sizeX, int sizeY) {
+        // One spare for a fast-forwarded state
+        snapshots = new GameSnapshot[capacity + 1];
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = new GameSnapshot(sizeX, sizeY);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Queues the state game is in.
+     */
+    public void add(Game game) {
+        next().copyFrom(game);
+    }
+
+    /**
+     * Queues a copy of snapshot.
+     */
+    public void add(GameSnapshot snapshot) {
+        next().copyFrom(snapshot);
+    }
+
+    /**
+     * Moves the oldest state into frame as a new version of it. Returns false,
+     * leaving frame alone, if the queue is empty.
+     */
+    public boolean poll(GameSnapshot frame) {
+        if (size == 0) {
+            return false;
+        }
+        long version = frame.version;
+        frame.copyFrom(snapshots[head]);
+        frame.version = version + 1;
+        head = (head + 1) % snapshots.length;
+        size--;
+        return true;
+    }
+
+    // The slot to copy the next state into
+    private GameSnapshot next() {
+        if (size == snapshots.length) {
+            // The fast-forwarded state is skipped; the next one ends on its
+            // board and more, so it is shown without animating instead
+            head = (head + 1) % snapshots.length;
+            size--;
+            snapshots[head].aGrid.cancelAnimations();
+        } else if (size == snapshots.length - 1) {
+            snapshots[head].aGrid.cancelAnimations();
+        }
+        size++;
+        return snapshots[(head + size - 1) % snapshots.length];
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.liaob.game2;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small seedable random generator, the SplitMix64 algorithm behind
+ * java.util.SplittableRandom, which Android only has from API 24. Its whole
+ * state is one long, so a game can save it and carry on with the same
+ * spawns after a restore.
+ *
+ * Not thread-safe: each thread takes its own stream with {@link #split()}.
+ */
+public class SplitMix64 {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final AtomicLong defaultSeeds =
+            new AtomicLong(mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+
+    private long state;
+
+    /**
+     * A generator seeded differently from every other unseeded one.
+     */
+    public SplitMix64() {
+        this(mix64(defaultSeeds.getAndAdd(2 * GOLDEN_GAMMA)) ^ System.nanoTime());
+    }
+
+    public SplitMix64(long seed) {
+        state = seed;
+    }
+
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix64(state);
+    }
+
+    /**
+     * A value from 0 (inclusive) to bound (exclusive); bound must be positive.
+     */
+    public int nextInt(int bound) {
+        // Scale the top 32 bits instead of taking a remainder; the bias is
+        // below bound / 2^32
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * A new generator whose stream starts at a random point of this one's
+     * 2^64 cycle, for handing to another thread. Advances this generator.
+     */
+    public SplitMix64 split() {
+        return new SplitMix64(nextLong());
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
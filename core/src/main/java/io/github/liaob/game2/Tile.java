@@ -2,7 +2,7 @@ package io.github.liaob.game2;
 
 public class Tile extends Cell {
     private int value;
-    private Tile[] mergedFrom = null;
+    private boolean merged = false;
 
     public Tile(int x, int y, int value) {
         super(x, y);
@@ -23,11 +23,19 @@ public class Tile extends Cell {
         return this.value;
     }
 
-    public Tile[] getMergedFrom() {
-        return mergedFrom;
+    public void setValue(int value) {
+        this.value = value;
+    }
+
+    /**
+     * Whether this tile was produced by a merge during the current move;
+     * a tile only merges once per move.
+     */
+    public boolean isMerged() {
+        return merged;
     }
 
-    public void setMergedFrom(Tile[] tile) {
-        mergedFrom = tile;
+    public void setMerged(boolean merged) {
+        this.merged = merged;
     }
 }
@@ -0,0 +1,57 @@
+package io.github.liaob.game2;
+
+/**
+ * Fixed-size cache of searched positions, indexed by a hash of the packed
+ * board. A colliding store simply overwrites the older entry, so memory
+ * stays bounded however long the search runs.
+ *
+ * Safe to share between search threads without locks: each slot keeps the
+ * board XORed with its packed score and depth, so a slot that another thread
+ * is halfway through writing fails the board check and reads as a miss.
+ */
+public class TranspositionTable {
+
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+
+    public TranspositionTable(int sizeBits) {
+        int size = 1 << sizeBits;
+        keys = new long[size];
+        entries = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Returns the cached score for a board searched at least {@code depth}
+     * deep, or NaN on a miss.
+     */
+    public float get(long board, int depth) {
+        int slot = slot(board);
+        long entry = entries[slot];
+        // Depths are stored one higher, so an untouched slot never matches
+        if ((keys[slot] ^ entry) == board && (int) (entry >>> 32) > depth) {
+            return Float.intBitsToFloat((int) entry);
+        }
+        return Float.NaN;
+    }
+
+    public void put(long board, int depth, float score) {
+        int slot = slot(board);
+        long entry = (long) (depth + 1) << 32
+                | (Float.floatToRawIntBits(score) & 0xFFFFFFFFL);
+        keys[slot] = board ^ entry;
+        entries[slot] = entry;
+    }
+
+    public void clear() {
+        for (int slot = 0; slot <= mask; slot++) {
+            entries[slot] = 0;
+        }
+    }
+
+    private int slot(long board) {
+        long hash = board * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 40) & mask;
+    }
+}
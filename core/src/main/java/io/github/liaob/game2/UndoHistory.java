@@ -0,0 +1,114 @@
+package io.github.liaob.game2;
+
+/**
+ * The states a game went through, as {@link PackedBoard} words with their
+ * turns and game state, for undo and redo. The states live in a ring of
+ * fixed capacity: when it is full the oldest state is overwritten, so memory
+ * stays the same however long the game, and stepping either way is O(1).
+ */
+public class UndoHistory {
+
+    // MAX_WORDS longs per state, so any board size fits
+    private final long[] boards;
+    private final long[] turns;
+    private final int[] gameStates;
+
+    // Ring index of the oldest state, how many are stored, and the offset
+    // from the oldest of the state the game is in
+    private int oldest = 0;
+    private int count = 0;
+    private int current = -1;
+
+    /**
+     * Keeps up to levels undo steps.
+     */
+    public UndoHistory(int levels) {
+        boards = new long[(levels + 1) * PackedBoard.MAX_WORDS];
+        turns = new long[levels + 1];
+        gameStates = new int[levels + 1];
+    }
+
+    /**
+     * Forgets every state but this one.
+     */
+    public void reset(PackedBoard board, long turns, int gameState) {
+        oldest = 0;
+        count = 0;
+        current = -1;
+        record(board, turns, gameState);
+    }
+
+    /**
+     * Adds the state after a move. The states that could have been redone
+     * are dropped.
+     */
+    public void record(PackedBoard board, long turns, int gameState) {
+        count = current + 1;
+        if (count == this.turns.length) {
+            oldest = (oldest + 1) % this.turns.length;
+            count--;
+        }
+        int slot = (oldest + count) % this.turns.length;
+        for (int i = 0; i < board.getWordCount(); i++) {
+            boards[slot * PackedBoard.MAX_WORDS + i] = board.getWord(i);
+        }
+        this.turns[slot] = turns;
+        gameStates[slot] = gameState;
+        count++;
+        current = count - 1;
+    }
+
+    public boolean canUndo() {
+        return current > 0;
+    }
+
+    public boolean canRedo() {
+        return current < count - 1;
+    }
+
+    /**
+     * Steps back one state; read it with the getters. Returns false, staying
+     * put, at the oldest state.
+     */
+    public boolean undo() {
+        if (!canUndo()) {
+            return false;
+        }
+        current--;
+        return true;
+    }
+
+    /**
+     * Steps forward one undone state. Returns false if there is none.
+     */
+    public boolean redo() {
+        if (!canRedo()) {
+            return false;
+        }
+        current++;
+        return true;
+    }
+
+    /**
+     * Copies the current state's board into out, which must have the size
+     * of the boards recorded.
+     */
+    public void getBoard(PackedBoard out) {
+        int slot = slot();
+        for (int i = 0; i < out.getWordCount(); i++) {
+            out.setWord(i, boards[slot * PackedBoard.MAX_WORDS + i]);
+        }
+    }
+
+    public long getTurns() {
+        return turns[slot()];
+    }
+
+    public int getGameState() {
+        return gameStates[slot()];
+    }
+
+    private int slot() {
+        return (oldest + current) % turns.length;
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.liaob.game2;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AnimationGridTest {
+
+    @Test
+    public void tickAll_dropsFinishedAnimationsAndKeepsOrder() {
+        AnimationGrid aGrid = new AnimationGrid(4, 4);
+        aGrid.startAnimation(1, 2, Game.MOVE_ANIMATION, 10, 0, 3, 2);
+        aGrid.startAnimation(1, 2, Game.MERGE_ANIMATION, 10, 10, null);
+        aGrid.startAnimation(-1, -1, Game.FADE_GLOBAL_ANIMATION, 100, 0, null);
+        assertEquals(2, aGrid.getAnimationCount(1, 2));
+        assertFalse(aGrid.isActive(1, 2, 1));
+
+        aGrid.tickAll(5);
+        assertEquals(0.5, aGrid.getPercentageDone(1, 2, 0), 1e-9);
+        assertEquals(3, aGrid.getFromX(1, 2, 0));
+        assertEquals(2, aGrid.getFromY(1, 2, 0));
+
+        aGrid.tickAll(10);
+        assertEquals(1, aGrid.getAnimationCount(1, 2));
+        assertEquals(Game.MERGE_ANIMATION, aGrid.getAnimationType(1, 2, 0));
+        assertTrue(aGrid.isActive(1, 2, 0));
+        assertEquals(0.5, aGrid.getPercentageDone(1, 2, 0), 1e-9);
+        assertEquals(1, aGrid.getAnimationCount(-1, -1));
+        assertTrue(aGrid.isAnimationActive());
+
+        aGrid.tickAll(100);
+        assertEquals(0, aGrid.getAnimationCount(1, 2));
+        assertEquals(0, aGrid.getAnimationCount(-1, -1));
+        // One extra frame is drawn after the last animation ends
+        assertTrue(aGrid.isAnimationActive());
+        assertFalse(aGrid.isAnimationActive());
+    }
+
+    @Test
+    public void startAnimation_fullCellDropsOldest() {
+        AnimationGrid aGrid = new AnimationGrid(4, 4);
+        for (int i = 0; i <= AnimationGrid.SLOTS_PER_CELL; i++) {
+            aGrid.startAnimation(0, 0, Game.MOVE_ANIMATION, 10, 0, i, 0);
+        }
+        assertEquals(AnimationGrid.SLOTS_PER_CELL, aGrid.getAnimationCount(0, 0));
+        assertEquals(1, aGrid.getFromX(0, 0, 0));
+
+        aGrid.cancelAnimations();
+        assertEquals(0, aGrid.getAnimationCount(0, 0));
+        aGrid.isAnimationActive();
+        assertFalse(aGrid.isAnimationActive());
+    }
+
+    @Test
+    public void animatedCells_followAnimationsButNotGlobalOnes() {
+        AnimationGrid aGrid = new AnimationGrid(4, 4);
+        aGrid.startAnimation(1, 2, Game.MOVE_ANIMATION, 10, 0, 3, 2);
+        aGrid.startAnimation(3, 0, Game.SPAWN_ANIMATION, 10, 10, null);
+        aGrid.startAnimation(-1, -1, Game.FADE_GLOBAL_ANIMATION, 100, 0, null);
+        assertEquals(1L << 9 | 1L << 3, aGrid.getAnimatedCells());
+
+        aGrid.tickAll(15);
+        assertEquals(1L << 3, aGrid.getAnimatedCells());
+
+        aGrid.tickAll(10);
+        assertEquals(0, aGrid.getAnimatedCells());
+        assertEquals(1, aGrid.getAnimationCount(-1, -1));
+
+        aGrid.startAnimation(0, 0, Game.MOVE_ANIMATION, 10, 0, 1, 0);
+        aGrid.cancelAnimations();
+        assertEquals(0, aGrid.getAnimatedCells());
+    }
+
+    @Test
+    public void animationCell_listsTheAnimationsOfACell() {
+        AnimationGrid aGrid = new AnimationGrid(4, 4);
+        aGrid.startAnimation(1, 2, Game.MOVE_ANIMATION, 10, 0, 3, 2);
+        aGrid.startAnimation(1, 2, Game.MERGE_ANIMATION, 10, 10, null);
+        aGrid.startAnimation(-1, -1, Game.FADE_GLOBAL_ANIMATION, 100, 0, null);
+
+        List<AnimationCell> cells = aGrid.getAnimationCell(1, 2);
+        assertEquals(2, cells.size());
+        AnimationCell move = cells.get(0);
+        assertEquals(Game.MOVE_ANIMATION, move.getAnimationType());
+        assertEquals(1, move.getX());
+        assertEquals(2, move.getY());
+        assertArrayEquals(new int[]{3, 2}, move.extras);
+        assertFalse(cells.get(1).isActive());
+        assertEquals(1, aGrid.getAnimationCell(-1, -1).size());
+
+        aGrid.tickAll(15);
+        assertEquals(1, cells.size());
+        assertEquals(Game.MERGE_ANIMATION, cells.get(0).getAnimationType());
+        assertEquals(0.5, cells.get(0).getPercentageDone(), 1e-9);
+        assertFalse(cells.get(0).animationDone());
+        assertTrue(aGrid.getAnimationCell(0, 0).isEmpty());
+    }
+}
@@ -0,0 +1,72 @@
+package io.github.liaob.game2;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BatchSimulationTest {
+
+    @Test
+    public void run_playsEveryGameOnce() throws InterruptedException {
+        BatchSimulation.Result result = BatchSimulation.run(BatchSimulation.CORNER, 50, 3, 7, 0);
+        assertEquals(50, result.games);
+        long perThread = 0;
+        for (long games : result.gamesPerThread) {
+            perThread += games;
+        }
+        assertEquals(50, perThread);
+        long byMaxTile = 0;
+        for (long games : result.maxTiles) {
+            byMaxTile += games;
+        }
+        assertEquals(50, byMaxTile);
+        assertTrue(result.moves > 0);
+    }
+
+    @Test
+    public void run_resultsDoNotDependOnTheThreads() throws InterruptedException {
+        String[] strategies = {BatchSimulation.RANDOM, BatchSimulation.GREEDY,
+                BatchSimulation.CORNER, BatchSimulation.EXPECTIMAX};
+        for (String strategy : strategies) {
+            BatchSimulation.Result one = BatchSimulation.run(strategy, 40, 1, 3, 1);
+            BatchSimulation.Result three = BatchSimulation.run(strategy, 40, 3, 3, 1);
+            assertEquals(strategy, one.moves, three.moves);
+            assertEquals(strategy, one.wins, three.wins);
+            assertArrayEquals(strategy, one.maxTiles, three.maxTiles);
+        }
+    }
+
+    @Test
+    public void run_countsTheMovesOfTheSameGame() throws InterruptedException {
+        // A random game played by hand from game 0's seed
+        SplitMix64 random = new SplitMix64(9);
+        BatchSimulation.Strategy strategy =
+                BatchSimulation.createStrategy(BatchSimulation.RANDOM, random, 0);
+        Replay replay = new Replay();
+        random.setState(9);
+        replay.start(random.nextLong());
+        long moves = 0;
+        while (replay.isActive()) {
+            assertTrue(replay.move(strategy.chooseMove(replay.board)));
+            moves++;
+        }
+
+        BatchSimulation.Result result = BatchSimulation.run(BatchSimulation.RANDOM, 1, 1, 9, 0);
+        assertEquals(moves, result.moves);
+        assertEquals(BitBoard.maxExponent(replay.board), maxTile(result));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void createStrategy_rejectsUnknownNames() {
+        BatchSimulation.createStrategy("sideways", new SplitMix64(0), 0);
+    }
+
+    private static int maxTile(BatchSimulation.Result result) {
+        for (int exponent = 0; exponent < result.maxTiles.length; exponent++) {
+            if (result.maxTiles[exponent] != 0) {
+                return exponent;
+            }
+        }
+        return -1;
+    }
+}
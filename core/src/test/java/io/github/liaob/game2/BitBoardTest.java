@@ -0,0 +1,165 @@
+package io.github.liaob.game2;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BitBoardTest {
+
+    private static final int[][] VECTORS = {{0, -1}, {1, 0}, {0, 1}, {-1, 0}};
+
+    @Test
+    public void slideRowLeft_mergesEachTileOnce() {
+        // 2 2 2 2 -> 4 4
+        assertEquals(0x22, BitBoard.slideRowLeft(0x1111));
+        // 2 2 4 _ -> 4 4
+        assertEquals(0x22, BitBoard.slideRowLeft(0x0211));
+        // _ 2 _ 2 -> 4
+        assertEquals(0x2, BitBoard.slideRowLeft(0x1010));
+    }
+
+    @Test
+    public void moveScore_sumsMergedTiles() {
+        long board = 0;
+        // 2 2 4 4 on the top row, 8 8 in the first column below it
+        board = BitBoard.setExponent(board, 0, 0, 1);
+        board = BitBoard.setExponent(board, 1, 0, 1);
+        board = BitBoard.setExponent(board, 2, 0, 2);
+        board = BitBoard.setExponent(board, 3, 0, 2);
+        board = BitBoard.setExponent(board, 0, 1, 3);
+        board = BitBoard.setExponent(board, 0, 2, 3);
+        assertEquals(4 + 8, BitBoard.moveScore(board, 3));
+        assertEquals(4 + 8, BitBoard.moveScore(board, 1));
+        assertEquals(16, BitBoard.moveScore(board, 0));
+        assertEquals(16, BitBoard.moveScore(board, 2));
+    }
+
+    @Test
+    public void canMove_agreesWithMove() {
+        Random random = new Random(1024);
+        for (int round = 0; round < 20000; round++) {
+            long board = randomBoard(random);
+            for (int direction = 0; direction < 4; direction++) {
+                assertEquals(BitBoard.move(board, direction) != board,
+                        BitBoard.canMove(board, direction));
+            }
+        }
+    }
+
+    @Test
+    public void transpose_swapsRowsAndColumns() {
+        long board = 0;
+        for (int index = 0; index < BitBoard.CELLS; index++) {
+            board = BitBoard.setExponent(board, index, index);
+        }
+        long transposed = BitBoard.transpose(board);
+        for (int xx = 0; xx < BitBoard.SIZE; xx++) {
+            for (int yy = 0; yy < BitBoard.SIZE; yy++) {
+                assertEquals(BitBoard.getExponent(board, xx, yy),
+                        BitBoard.getExponent(transposed, yy, xx));
+            }
+        }
+    }
+
+    @Test
+    public void gridRoundTrip() {
+        Grid grid = new Grid(4, 4);
+        grid.insertTile(new Tile(1, 2, 8));
+        grid.insertTile(new Tile(3, 0, 2048));
+        long board = BitBoard.fromGrid(grid);
+        assertEquals(3, BitBoard.getExponent(board, 1, 2));
+        assertEquals(2048, BitBoard.getValue(board, 3, 0));
+
+        Grid copy = new Grid(4, 4);
+        BitBoard.toGrid(board, copy);
+        assertEquals(board, BitBoard.fromGrid(copy));
+    }
+
+    @Test
+    public void move_matchesGridRules() {
+        Random random = new Random(2048);
+        for (int round = 0; round < 20000; round++) {
+            long board = randomBoard(random);
+            for (int direction = 0; direction < 4; direction++) {
+                Grid grid = new Grid(4, 4);
+                BitBoard.toGrid(board, grid);
+                referenceMove(grid, direction);
+                assertEquals(BitBoard.fromGrid(grid), BitBoard.move(board, direction));
+            }
+        }
+    }
+
+    @Test
+    public void movesAvailable_matchesGridRules() {
+        Random random = new Random(4096);
+        for (int round = 0; round < 20000; round++) {
+            long board = randomBoard(random);
+            Grid grid = new Grid(4, 4);
+            BitBoard.toGrid(board, grid);
+            boolean expected = grid.isCellsAvailable() || referenceMatches(grid);
+            assertEquals(expected, BitBoard.movesAvailable(board));
+        }
+    }
+
+    private static long randomBoard(Random random) {
+        long board = 0;
+        for (int index = 0; index < BitBoard.CELLS; index++) {
+            // Mostly full boards with small exponents, so merges are common
+            if (random.nextInt(5) != 0) {
+                board = BitBoard.setExponent(board, index, 1 + random.nextInt(4));
+            }
+        }
+        return board;
+    }
+
+    // The traversal and merge rules of Game.move, without animations.
+    private static void referenceMove(Grid grid, int direction) {
+        int vx = VECTORS[direction][0];
+        int vy = VECTORS[direction][1];
+        boolean[][] merged = new boolean[4][4];
+        for (int i = 0; i < 4; i++) {
+            int xx = vx == 1 ? 3 - i : i;
+            for (int j = 0; j < 4; j++) {
+                int yy = vy == 1 ? 3 - j : j;
+                Tile tile = grid.getCellContent(xx, yy);
+                if (tile == null) {
+                    continue;
+                }
+                int px = xx;
+                int py = yy;
+                while (grid.isCellWithinBounds(px + vx, py + vy)
+                        && grid.getCellContent(px + vx, py + vy) == null) {
+                    px += vx;
+                    py += vy;
+                }
+                Tile next = grid.getCellContent(px + vx, py + vy);
+                grid.removeTile(tile);
+                if (next != null && next.getValue() == tile.getValue()
+                        && !merged[px + vx][py + vy]) {
+                    grid.insertTile(new Tile(px + vx, py + vy, tile.getValue() * 2));
+                    merged[px + vx][py + vy] = true;
+                } else {
+                    grid.insertTile(new Tile(px, py, tile.getValue()));
+                }
+            }
+        }
+    }
+
+    private static boolean referenceMatches(Grid grid) {
+        for (int xx = 0; xx < 4; xx++) {
+            for (int yy = 0; yy < 4; yy++) {
+                Tile tile = grid.getCellContent(xx, yy);
+                for (int[] vector : VECTORS) {
+                    Tile other = grid.getCellContent(xx + vector[0], yy + vector[1]);
+                    if (tile != null && other != null
+                            && other.getValue() == tile.getValue()) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
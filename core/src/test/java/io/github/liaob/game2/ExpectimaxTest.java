@@ -0,0 +1,72 @@
+package io.github.liaob.game2;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ExpectimaxTest {
+
+    @Test
+    public void bestMove_noMovesLeft() {
+        long board = 0;
+        for (int index = 0; index < BitBoard.CELLS; index++) {
+            // Checkerboard of 2s and 4s, nothing can merge
+            int exponent = ((index >> 2) + (index & 3)) % 2 == 0 ? 1 : 2;
+            board = BitBoard.setExponent(board, index, exponent);
+        }
+        assertEquals(-1, new Expectimax().bestMove(board));
+    }
+
+    @Test
+    public void bestMove_onlyLegalDirection() {
+        // A single tile in the top left corner can only go right or down
+        long board = BitBoard.setExponent(0, 0, 0, 1);
+        int direction = new Expectimax().bestMove(board);
+        assertTrue(direction == 1 || direction == 2);
+    }
+
+    @Test
+    public void bestMove_readsGrid() {
+        Grid grid = new Grid(4, 4);
+        grid.insertTile(new Tile(0, 0, 2));
+        grid.insertTile(new Tile(3, 0, 4));
+        Expectimax expectimax = new Expectimax();
+        int direction = expectimax.bestMove(grid);
+        assertTrue(BitBoard.canMove(BitBoard.fromGrid(grid), direction));
+    }
+
+    @Test
+    public void fixedDepth_searchesExactlyThatDeep() {
+        long board = BitBoard.setExponent(BitBoard.setExponent(0, 0, 0, 1), 3, 0, 2);
+        Expectimax expectimax = new Expectimax();
+        int direction = expectimax.bestMove(board, 3);
+        assertTrue(BitBoard.canMove(board, direction));
+        assertEquals(3, expectimax.getSearchedDepth());
+        assertEquals(direction, new Expectimax().bestMove(board, 3));
+    }
+
+    @Test
+    public void timeBudget_stopsTheSearch() {
+        Expectimax expectimax = new Expectimax(new DefaultHeuristic(), 10000000L);
+        long start = System.nanoTime();
+        expectimax.bestMove(BitBoard.setExponent(0, 0, 0, 1));
+        // Loose: only a search that ignores its budget takes this long
+        assertTrue(System.nanoTime() - start < 5000000000L);
+    }
+
+    @Test
+    public void parallelBestMove_legalDirection() {
+        ParallelExpectimax search = new ParallelExpectimax(2);
+        try {
+            for (long board : SearchSpeedup.sampleBoards(5, new Random(7))) {
+                int direction = search.bestMove(board, 3);
+                assertTrue(direction == -1 || BitBoard.canMove(board, direction));
+                assertEquals(direction == -1, !BitBoard.movesAvailable(board));
+            }
+        } finally {
+            search.shutdown();
+        }
+    }
+}
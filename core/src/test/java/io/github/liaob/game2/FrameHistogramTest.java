@@ -0,0 +1,65 @@
+package io.github.liaob.game2;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameHistogramTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void percentiles_followTheBuckets() {
+        FrameHistogram histogram = new FrameHistogram("draw");
+        for (int i = 0; i < 90; i++) {
+            histogram.record(2 * MS + 100);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(30 * MS);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(2 * MS + FrameHistogram.BUCKET_NANOS, histogram.getPercentileNanos(0.5));
+        assertEquals(2 * MS + FrameHistogram.BUCKET_NANOS, histogram.getPercentileNanos(0.9));
+        assertEquals(30 * MS, histogram.getPercentileNanos(0.95));
+        assertEquals(30 * MS, histogram.getMaxNanos());
+        assertEquals(10, histogram.countAtLeast(16 * MS));
+    }
+
+    @Test
+    public void longDurations_goIntoTheLastBucket() {
+        FrameHistogram histogram = new FrameHistogram("draw");
+        histogram.record(5000 * MS);
+        assertEquals(1, histogram.countAtLeast(FrameHistogram.BUCKETS * FrameHistogram.BUCKET_NANOS));
+        assertEquals(5000 * MS, histogram.getPercentileNanos(0.99));
+    }
+
+    @Test
+    public void moreBuckets_reachFurther() {
+        FrameHistogram histogram = new FrameHistogram("settled", 2000);
+        histogram.record(200 * MS);
+        histogram.record(5000 * MS);
+        assertEquals(200 * MS + FrameHistogram.BUCKET_NANOS, histogram.getPercentileNanos(0.5));
+        assertEquals(1, histogram.countAtLeast(500 * MS));
+    }
+
+    @Test
+    public void clear_forgetsEverything() {
+        FrameHistogram histogram = new FrameHistogram("tick");
+        histogram.record(MS);
+        histogram.clear();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getPercentileNanos(0.5));
+    }
+
+    @Test
+    public void writeTo_listsTheSummaryAndBuckets() throws Exception {
+        FrameHistogram histogram = new FrameHistogram("draw");
+        histogram.record(MS);
+        histogram.record(MS);
+        StringBuilder out = new StringBuilder();
+        histogram.writeTo(out);
+        assertEquals("draw\tcount 2\tmean 1000\tp50 1000\tp95 1000\tp99 1000\tmax 1000\n"
+                + "1000\t2\n", out.toString());
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.liaob.game2;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+public class GameAllocationTest {
+
+    private static final int WARMUP_MOVES = 200000;
+    private static final int ROUNDS = 5;
+    private static final int MOVES_PER_ROUND = 2000;
+
+    @Test
+    public void move_allocatesNothingAfterWarmup() {
+        assertMovesAllocateNothing(new Game(false));
+    }
+
+    @Test
+    public void animatedMoveAndTick_allocateNothingAfterWarmup() {
+        assertMovesAllocateNothing(new Game(true));
+    }
+
+    private static void assertMovesAllocateNothing(Game game) {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean()
+                instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        game.newGame();
+        for (int i = 0; i < WARMUP_MOVES; i++) {
+            game.move(nextDirection(game, i));
+            tick(game);
+            // Reading the counter allocates while its own code warms up, so
+            // it warms up here too, and is read once a round rather than
+            // around every move
+            threads.getThreadAllocatedBytes(thread);
+        }
+
+        // Every round counts: after the warmup, moves must never allocate
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < MOVES_PER_ROUND; i++) {
+                game.move(nextDirection(game, i));
+                tick(game);
+            }
+            long allocated = threads.getThreadAllocatedBytes(thread) - before;
+            assertEquals("bytes allocated by " + MOVES_PER_ROUND + " moves in round " + round,
+                    0, allocated);
+        }
+    }
+
+    // Advances half a move animation, as a frame would
+    private static void tick(Game game) {
+        if (game.aGrid != null) {
+            game.aGrid.tickAll(Game.MOVE_ANIMATION_TIME / 2);
+        }
+    }
+
+    // Starts a new game when the current one is over
+    private static int nextDirection(Game game, int turn) {
+        if (!game.isActive() || !BitBoard.movesAvailable(game.getBoard())) {
+            game.newGame();
+        }
+        long board = game.getBoard();
+        // Mostly down and left, like a player keeping a corner, with the
+        // occasional other direction
+        int direction = turn % 7 == 0 ? 0 : (turn & 1) == 0 ? 2 : 3;
+        while (!BitBoard.canMove(board, direction)) {
+            direction = (direction + 1) & 3;
+        }
+        return direction;
+    }
+}
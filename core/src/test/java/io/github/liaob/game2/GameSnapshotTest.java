@@ -0,0 +1,47 @@
+package io.github.liaob.game2;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GameSnapshotTest {
+
+    @Test
+    public void copyFrom_isIndependentOfTheGame() {
+        Game game = new Game();
+        game.newGame();
+        GameSnapshot snapshot = new GameSnapshot(4, 4);
+        snapshot.copyFrom(game);
+
+        assertEquals(game.getPackedBoard(), snapshot.board);
+        assertEquals("0", snapshot.moves);
+        assertTrue(snapshot.active);
+        assertEquals(1, snapshot.version);
+        long spawned = game.aGrid.getAnimatedCells();
+        assertEquals(2, Long.bitCount(spawned));
+        assertEquals(spawned, snapshot.aGrid.getAnimatedCells());
+
+        // Ticking the copy leaves the game's animations alone
+        snapshot.aGrid.tickAll(Game.MOVE_ANIMATION_TIME + Game.SPAWN_ANIMATION_TIME + 1);
+        assertEquals(0, snapshot.aGrid.getAnimatedCells());
+        assertEquals(spawned, game.aGrid.getAnimatedCells());
+
+        GameSnapshot copy = new GameSnapshot(4, 4);
+        copy.copyFrom(snapshot);
+        assertEquals(snapshot.board, copy.board);
+        assertEquals(snapshot.version, copy.version);
+        assertEquals(0, copy.aGrid.getAnimatedCells());
+    }
+
+    @Test
+    public void copyFrom_followsTheBoardSize() {
+        Game game = new Game();
+        game.newGame(6);
+        GameSnapshot snapshot = new GameSnapshot(4, 4);
+        snapshot.copyFrom(game);
+
+        assertEquals(6, snapshot.board.getWidth());
+        assertEquals(6, snapshot.aGrid.getWidth());
+        assertEquals(game.aGrid.getAnimatedCells(), snapshot.aGrid.getAnimatedCells());
+    }
+}
@@ -0,0 +1,203 @@
+package io.github.liaob.game2;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class GameTest {
+
+    @Test
+    public void newGame_spawnsStartTiles() {
+        Game game = new Game(false);
+        game.newGame();
+        assertEquals(14, BitBoard.countEmpty(game.getBoard()));
+        assertEquals(Game.GAME_NORMAL, game.gameState);
+        assertEquals(0, game.turns);
+    }
+
+    @Test
+    public void move_thenUndo() {
+        Game game = new Game(false);
+        game.newGame();
+        long board = game.getBoard();
+        int direction = firstLegalMove(board);
+
+        game.move(direction);
+        assertEquals(1, game.turns);
+        assertEquals("1", game.getMoves());
+        assertTrue(game.canUndo());
+
+        game.undo();
+        assertEquals(board, game.getBoard());
+        assertEquals(0, game.turns);
+        assertFalse(game.canUndo());
+    }
+
+    @Test
+    public void undoThenRedo_walksTheHistory() {
+        Game game = new Game(false, new SplitMix64(8));
+        game.newGame();
+        long[] boards = new long[11];
+        boards[0] = game.getBoard();
+        for (int i = 1; i < boards.length; i++) {
+            game.move(firstLegalMove(game.getBoard()));
+            boards[i] = game.getBoard();
+        }
+
+        for (int i = boards.length - 2; i >= 0; i--) {
+            game.undo();
+            assertEquals(boards[i], game.getBoard());
+            assertEquals(i, game.turns);
+        }
+        assertFalse(game.canUndo());
+        game.redo();
+        game.redo();
+        assertEquals(boards[2], game.getBoard());
+        assertEquals(2, game.turns);
+
+        game.move(firstLegalMove(game.getBoard()));
+        assertFalse(game.canRedo());
+    }
+
+    @Test
+    public void listeners_followTheGame() {
+        final int[] events = new int[3];
+        Game game = new Game(false);
+        game.addListener(new GameListener() {
+            @Override
+            public void onNewGame() {
+                events[0]++;
+            }
+
+            @Override
+            public void onMove(int direction, boolean moved) {
+                events[1]++;
+            }
+
+            @Override
+            public void onUndo() {
+                events[2]++;
+            }
+
+            @Override
+            public void onRedo() {
+            }
+
+            @Override
+            public void onGameEnd(boolean won) {
+            }
+
+            @Override
+            public void onPersonalBest(String personalBest) {
+            }
+        });
+        game.newGame();
+        game.move(firstLegalMove(game.getBoard()));
+        game.undo();
+        assertEquals(1, events[0]);
+        assertEquals(1, events[1]);
+        assertEquals(1, events[2]);
+    }
+
+    @Test
+    public void headlessGame_playsToTheEnd() {
+        Game game = new Game(false);
+        game.newGame();
+        int direction;
+        while (game.isActive() && (direction = firstLegalMove(game.getBoard())) != -1) {
+            game.move(direction);
+        }
+        assertFalse(game.isActive());
+        assertFalse(BitBoard.movesAvailable(game.getBoard()) && !game.gameWon());
+    }
+
+    @Test
+    public void sameSeed_playsTheSameGame() {
+        Game first = new Game(false, new SplitMix64(42));
+        Game second = new Game(false, new SplitMix64(42));
+        first.newGame();
+        second.newGame();
+        int direction;
+        while (first.isActive() && (direction = firstLegalMove(first.getBoard())) != -1) {
+            first.move(direction);
+            second.move(direction);
+            assertEquals(first.getBoard(), second.getBoard());
+        }
+        assertEquals(first.turns, second.turns);
+    }
+
+    @Test
+    public void blockedMove_keepsTheLastMovesAnimations() {
+        Game game = new Game(true, new SplitMix64(3));
+        game.newGame();
+        // Two tiles on the bottom row, so after a move some direction is blocked
+        game.restore(BitBoard.setExponent(BitBoard.setExponent(0, 0, 3, 1), 2, 3, 2), 0,
+                Game.GAME_NORMAL);
+        game.move(3);
+        long animated = game.aGrid.getAnimatedCells();
+        assertTrue(game.aGrid.hasAnimations());
+        long board = game.getBoard();
+        int blocked = -1;
+        for (int direction = 0; direction < 4; direction++) {
+            if (!BitBoard.canMove(board, direction)) {
+                blocked = direction;
+            }
+        }
+        assertTrue(blocked != -1);
+        game.move(blocked);
+        assertEquals(animated, game.aGrid.getAnimatedCells());
+    }
+
+    @Test
+    public void tilesPast32768_moveUndoAndSaveOnLargeBoards() {
+        Game game = new Game(false, new SplitMix64(5));
+        PackedBoard board = new PackedBoard(6, 6);
+        board.setExponent(0, 0, 15);
+        board.setExponent(1, 0, 15);
+        game.restore(board, 10, Game.GAME_NORMAL);
+
+        game.move(3);
+        assertEquals(16, game.getPackedBoard().getExponent(0, 0));
+        assertEquals(65536, game.grid.getCellContent(0, 0).getValue());
+        assertEquals(11, game.turns);
+
+        game.undo();
+        assertEquals(15, game.getPackedBoard().getExponent(0, 0));
+        assertEquals(15, game.getPackedBoard().getExponent(1, 0));
+        game.redo();
+        assertEquals(16, game.getPackedBoard().getExponent(0, 0));
+
+        SavedGame saved = new SavedGame();
+        saved.copyFrom(game);
+        ByteBuffer buffer = ByteBuffer.allocate(SavedGame.MAX_SIZE);
+        saved.write(buffer);
+        buffer.flip();
+        SavedGame loaded = new SavedGame();
+        assertTrue(loaded.read(buffer));
+        Game restored = new Game(false);
+        loaded.applyTo(restored);
+        assertEquals(game.getPackedBoard(), restored.getPackedBoard());
+        assertEquals(65536, restored.grid.getCellContent(0, 0).getValue());
+
+        // The only tile that can move is the 65536
+        board.clear();
+        board.setExponent(0, 0, 16);
+        game.restore(board, 11, Game.GAME_NORMAL);
+        assertTrue(game.getPackedBoard().canMove(1));
+        assertFalse(game.getPackedBoard().canMove(3));
+        game.move(1);
+        assertEquals(12, game.turns);
+        assertEquals(16, game.getPackedBoard().getExponent(5, 0));
+    }
+
+    private static int firstLegalMove(long board) {
+        for (int direction = 0; direction < 4; direction++) {
+            if (BitBoard.canMove(board, direction)) {
+                return direction;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.liaob.game2;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GridTest {
+
+    @Test
+    public void occupancy_followsInsertRemoveAndMove() {
+        Grid grid = new Grid(4, 4);
+        assertEquals(16, grid.countAvailableCells());
+
+        Tile tile = new Tile(1, 2, 2);
+        grid.insertTile(tile);
+        assertEquals(15, grid.countAvailableCells());
+        assertTrue(grid.isCellOccupied(1, 2));
+
+        grid.moveTile(tile, 3, 2);
+        assertEquals(15, grid.countAvailableCells());
+        assertTrue(grid.isCellAvailable(1, 2));
+        assertTrue(grid.isCellOccupied(new Cell(3, 2)));
+
+        grid.removeTile(tile);
+        assertEquals(16, grid.countAvailableCells());
+        assertFalse(grid.isCellOccupied(3, 2));
+
+        grid.insertTile(new Tile(0, 0, 4));
+        grid.clearGrid();
+        assertEquals(16, grid.countAvailableCells());
+        assertTrue(grid.isCellsAvailable());
+    }
+
+    @Test
+    public void randomAvailableIndex_onlyPicksFreeCells() {
+        Grid grid = new Grid(4, 4);
+        for (int index = 0; index < 16; index++) {
+            if (index != 5 && index != 10) {
+                grid.insertTile(new Tile(index % 4, index / 4, 2));
+            }
+        }
+        boolean[] seen = new boolean[16];
+        for (int i = 0; i < 200; i++) {
+            int index = grid.randomAvailableIndex();
+            assertTrue(index == 5 || index == 10);
+            seen[index] = true;
+        }
+        assertTrue(seen[5] && seen[10]);
+
+        grid.insertTile(new Tile(1, 1, 2));
+        grid.insertTile(new Tile(2, 2, 2));
+        assertEquals(-1, grid.randomAvailableIndex());
+        assertFalse(grid.isCellsAvailable());
+    }
+
+    @Test
+    public void selectBit_findsNthSetBit() {
+        long mask = (1L << 3) | (1L << 17) | (1L << 63);
+        assertEquals(3, Grid.selectBit(mask, 0));
+        assertEquals(17, Grid.selectBit(mask, 1));
+        assertEquals(63, Grid.selectBit(mask, 2));
+    }
+}
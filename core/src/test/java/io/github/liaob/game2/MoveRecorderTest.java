@@ -0,0 +1,58 @@
+package io.github.liaob.game2;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MoveRecorderTest {
+
+    @Test
+    public void recordedGames_replayToTheSameBoard() {
+        Game game = new Game(false, new SplitMix64(4));
+        MoveRecorder recorder = new MoveRecorder(game);
+        game.addListener(recorder);
+        assertFalse(recorder.canReplay());
+
+        game.newGame();
+        Random directions = new Random(5);
+        // Past the first buffer, so it grows
+        for (int i = 0; i < 1000 && game.isActive(); i++) {
+            game.move(directions.nextInt(4));
+        }
+        assertTrue(recorder.canReplay());
+        assertEquals(game.turns, recorder.getLength());
+
+        Replay replay = new Replay();
+        replay.start(recorder.getSeed());
+        replay.play(recorder.getMoves(), 0, recorder.getLength());
+        assertEquals(game.getBoard(), replay.board);
+    }
+
+    @Test
+    public void undo_stopsTheRecordingUntilTheNextGame() {
+        Game game = new Game(false, new SplitMix64(6));
+        MoveRecorder recorder = new MoveRecorder(game);
+        game.addListener(recorder);
+        game.newGame();
+        for (int direction = 0; direction < 4; direction++) {
+            game.move(direction);
+        }
+        game.undo();
+        assertFalse(recorder.canReplay());
+
+        game.newGame();
+        assertTrue(recorder.canReplay());
+    }
+
+    @Test
+    public void largerBoards_cannotBeReplayed() {
+        Game game = new Game(false, new SplitMix64(7));
+        MoveRecorder recorder = new MoveRecorder(game);
+        game.addListener(recorder);
+        game.newGame(5);
+        game.move(0);
+        assertFalse(recorder.canReplay());
+    }
+}
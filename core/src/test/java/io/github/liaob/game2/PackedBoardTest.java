@@ -0,0 +1,84 @@
+package io.github.liaob.game2;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PackedBoardTest {
+
+    @Test
+    public void move_matchesTheGameOnEverySize() {
+        Random directions = new Random(3);
+        for (int size = PackedBoard.MIN_SIZE; size <= PackedBoard.MAX_SIZE; size++) {
+            Game game = new Game(false, new SplitMix64(size));
+            game.newGame(size);
+            PackedBoard expected = new PackedBoard(size, size);
+            for (int turn = 0; turn < 300 && game.isActive(); turn++) {
+                int direction = directions.nextInt(4);
+                expected.copyFrom(game.getPackedBoard());
+                boolean canMove = expected.canMove(direction);
+                boolean moved = expected.move(direction);
+                assertEquals(canMove, moved);
+
+                game.move(direction);
+                if (moved) {
+                    expected.setExponent(game.getLastSpawnIndex(), 1);
+                }
+                assertEquals(expected, game.getPackedBoard());
+                assertEquals(game.movesAvailable(), game.getPackedBoard().movesAvailable());
+            }
+        }
+    }
+
+    @Test
+    public void emptyCells_ignoreTheUnusedBytes() {
+        PackedBoard board = new PackedBoard(3, 3);
+        assertEquals(9, board.countEmpty());
+        board.setExponent(0, 1);
+        board.setExponent(4, 2);
+        assertEquals(7, board.countEmpty());
+        assertEquals(1, board.emptyCell(0));
+        assertEquals(5, board.emptyCell(3));
+        assertEquals(-1, board.emptyCell(7));
+
+        board.setSize(8, 8);
+        assertEquals(64, board.countEmpty());
+        board.setExponent(63, 3);
+        assertEquals(62, board.emptyCell(62));
+        assertEquals(3, board.maxExponent());
+    }
+
+    @Test
+    public void fourByFour_isABitBoard() {
+        long bits = BitBoard.setExponent(BitBoard.setExponent(0, 1, 2, 3), 3, 3, 5);
+        PackedBoard board = new PackedBoard(5, 5);
+        board.fromBitBoard(bits);
+        assertEquals(4, board.getWidth());
+        assertEquals(3, board.getExponent(1, 2));
+        assertTrue(board.move(3));
+        assertEquals(BitBoard.move(bits, 3), board.toBitBoard());
+    }
+
+    @Test
+    public void fourByFour_leavesTheTablesPast32768() {
+        PackedBoard board = new PackedBoard(4, 4);
+        board.setExponent(0, 0, 15);
+        board.setExponent(1, 0, 15);
+        assertTrue(board.fitsBitBoard());
+        assertTrue(board.move(3));
+        assertEquals(16, board.getExponent(0, 0));
+        assertFalse(board.fitsBitBoard());
+        assertTrue(board.canMove(1));
+        assertTrue(board.movesAvailable());
+        assertTrue(board.move(1));
+        assertEquals(16, board.getExponent(3, 0));
+        assertEquals(15, board.countEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setSize_rejectsSizesOutOfRange() {
+        new PackedBoard(9, 9);
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.liaob.game2;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ReplayTest {
+
+    @Test
+    public void replay_followsTheGameToTheEnd() {
+        Random directions = new Random(11);
+        for (int seed = 0; seed < 20; seed++) {
+            Game game = new Game(false, new SplitMix64(seed));
+            game.newGame();
+            Replay replay = new Replay();
+            replay.start(game.getStartSeed());
+            assertEquals(game.getBoard(), replay.board);
+
+            while (game.isActive()) {
+                int direction = directions.nextInt(4);
+                long before = game.getBoard();
+                game.move(direction);
+                assertEquals(before != game.getBoard(), replay.move(direction));
+                assertEquals(game.getBoard(), replay.board);
+                assertEquals(game.turns, replay.turns);
+                assertEquals(game.gameState, replay.gameState);
+            }
+            assertFalse(replay.isActive());
+        }
+    }
+
+    @Test
+    public void play_countsTheMovesThatChangedTheBoard() {
+        Replay replay = new Replay();
+        replay.start(5);
+        // A 2 above a 4 on the left edge: left is blocked, right is not
+        replay.board = BitBoard.setExponent(BitBoard.setExponent(0, 0, 0, 1), 0, 1, 2);
+        byte[] moves = {3, 1};
+
+        assertEquals(1, replay.play(moves, 0, moves.length));
+        assertEquals(1, replay.turns);
+    }
+
+    @Test
+    public void sameSeed_replaysTheSameGame() {
+        byte[] moves = new byte[500];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = (byte) (i * 7 % 4);
+        }
+        Replay first = new Replay();
+        Replay second = new Replay();
+        first.start(99);
+        second.start(99);
+        first.play(moves, 0, moves.length);
+        second.play(moves, 0, moves.length);
+        assertEquals(first.board, second.board);
+        assertEquals(first.turns, second.turns);
+    }
+}
@@ -0,0 +1,192 @@
+package io.github.liaob.game2;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class SaveStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void journaledMoves_areReplayedByANewStore() throws Exception {
+        File file = new File(folder.getRoot(), "game.sav");
+        SaveStore store = new SaveStore(file);
+        Game game = new Game(false);
+        store.track(game);
+        game.newGame();
+        play(game, 40);
+        store.close();
+        assertTrue(file.length() > SavedGame.MAX_SIZE);
+        assertFalse(new File(folder.getRoot(), "game.sav.tmp").exists());
+
+        Game loaded = new Game(false);
+        loaded.newGame();
+        assertTrue(new SaveStore(file).load(loaded));
+        assertEquals(game.getBoard(), loaded.getBoard());
+        assertEquals(game.turns, loaded.turns);
+        assertEquals(game.gameState, loaded.gameState);
+        assertEquals(game.getRandom().getState(), loaded.getRandom().getState());
+    }
+
+    @Test
+    public void longGames_compactTheJournal() throws Exception {
+        File file = new File(folder.getRoot(), "game.sav");
+        SaveStore store = new SaveStore(file);
+        Game game = new Game(false);
+        store.track(game);
+        game.newGame();
+        play(game, SaveStore.COMPACT_EVERY * 3);
+        game.undo();
+        play(game, 10);
+        store.close();
+        assertTrue(file.length() <= SavedGame.MAX_SIZE
+                + SaveStore.COMPACT_EVERY * SaveStore.ENTRY_SIZE);
+
+        Game loaded = new Game(false);
+        assertTrue(new SaveStore(file).load(loaded));
+        assertEquals(game.getBoard(), loaded.getBoard());
+        assertEquals(game.turns, loaded.turns);
+    }
+
+    @Test
+    public void largeBoards_areJournaledToo() throws Exception {
+        File file = new File(folder.getRoot(), "game.sav");
+        SaveStore store = new SaveStore(file);
+        Game game = new Game(false);
+        store.track(game);
+        game.newGame(8);
+        play(game, 60);
+        store.close();
+
+        Game loaded = new Game(false);
+        loaded.newGame();
+        assertTrue(new SaveStore(file).load(loaded));
+        assertEquals(8, loaded.getWidth());
+        assertEquals(game.getPackedBoard(), loaded.getPackedBoard());
+        assertEquals(game.turns, loaded.turns);
+    }
+
+    @Test
+    public void load_prefersTheLatestStateAndFailsWithoutOne() throws Exception {
+        File file = new File(folder.getRoot(), "game.sav");
+        SaveStore store = new SaveStore(file);
+        Game game = new Game(false);
+        game.newGame();
+        assertFalse(store.load(game));
+
+        store.save(game);
+        Game other = new Game(false);
+        other.newGame();
+        assertTrue(store.load(other));
+        assertEquals(game.getBoard(), other.getBoard());
+        store.close();
+    }
+
+    @Test
+    public void preload_readsTheFileSoLoadDoesNot() throws Exception {
+        File file = new File(folder.getRoot(), "game.sav");
+        SaveStore store = new SaveStore(file);
+        Game game = new Game(false);
+        store.track(game);
+        game.newGame();
+        play(game, 20);
+        store.close();
+
+        SaveStore reopened = new SaveStore(file);
+        final CountDownLatch done = new CountDownLatch(1);
+        reopened.preload(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(file.delete());
+        Game loaded = new Game(false);
+        assertTrue(reopened.load(loaded));
+        assertEquals(game.getPackedBoard(), loaded.getPackedBoard());
+        assertEquals(game.turns, loaded.turns);
+        reopened.close();
+    }
+
+    @Test
+    public void failedWrites_areReported() throws Exception {
+        // A directory in the way cannot be replaced by the snapshot
+        File file = folder.newFolder("game.sav");
+        SaveStore store = new SaveStore(file);
+        final AtomicReference<IOException> failure = new AtomicReference<IOException>();
+        store.setErrorListener(new SaveStore.ErrorListener() {
+            @Override
+            public void onSaveFailed(IOException e) {
+                failure.set(e);
+            }
+        });
+        Game game = new Game(false);
+        game.newGame();
+        store.save(game);
+        store.close();
+        assertNotNull(failure.get());
+    }
+
+    @Test
+    public void failedSnapshots_areRetriedBeforeTheJournalGrows() throws Exception {
+        // The snapshot cannot be renamed over a directory
+        File file = folder.newFolder("game.sav");
+        SaveStore store = new SaveStore(file);
+        final AtomicInteger failures = new AtomicInteger();
+        store.setErrorListener(new SaveStore.ErrorListener() {
+            @Override
+            public void onSaveFailed(IOException e) {
+                failures.incrementAndGet();
+            }
+        });
+        Game game = new Game(false, new SplitMix64(4));
+        store.track(game);
+        game.newGame();
+        play(game, 5);
+        final CountDownLatch written = new CountDownLatch(1);
+        store.preload(new Runnable() {
+            @Override
+            public void run() {
+                written.countDown();
+            }
+        });
+        assertTrue(written.await(10, TimeUnit.SECONDS));
+        assertTrue(failures.get() > 0);
+
+        assertTrue(file.delete());
+        play(game, 5);
+        store.close();
+
+        Game loaded = new Game(false);
+        assertTrue(new SaveStore(file).load(loaded));
+        assertEquals(game.getPackedBoard(), loaded.getPackedBoard());
+        assertEquals(game.turns, loaded.turns);
+        assertEquals(game.getRandom().getState(), loaded.getRandom().getState());
+    }
+
+    // Plays until the game ends or moves run out, starting over as needed
+    private static void play(Game game, int moves) {
+        for (int i = 0; i < moves; i++) {
+            if (!game.isActive() || !game.getPackedBoard().movesAvailable()) {
+                game.newGame();
+            }
+            int direction = (i & 1) == 0 ? 2 : 3;
+            while (!game.getPackedBoard().canMove(direction)) {
+                direction = (direction + 1) & 3;
+            }
+            game.move(direction);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.liaob.game2;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class SavedGameTest {
+
+    @Test
+    public void writeThenRead_roundTrips() {
+        SavedGame saved = new SavedGame();
+        saved.board.setSize(5, 7);
+        saved.board.setExponent(4, 6, 13);
+        saved.board.setExponent(0, 0, 1);
+        saved.turns = 4242;
+        saved.gameState = Game.GAME_NORMAL_WON;
+        saved.rngState = -7;
+        ByteBuffer buffer = ByteBuffer.allocate(SavedGame.MAX_SIZE);
+        saved.write(buffer);
+        buffer.flip();
+        assertEquals(saved.size(), buffer.remaining());
+
+        SavedGame loaded = new SavedGame();
+        assertTrue(loaded.read(buffer));
+        assertEquals(saved.board, loaded.board);
+        assertEquals(saved.turns, loaded.turns);
+        assertEquals(saved.gameState, loaded.gameState);
+        assertEquals(saved.rngState, loaded.rngState);
+    }
+
+    @Test
+    public void read_rejectsCorruptOrShortRecords() {
+        SavedGame saved = new SavedGame();
+        saved.board.fromBitBoard(0x1111L);
+        ByteBuffer buffer = ByteBuffer.allocate(SavedGame.MAX_SIZE);
+        saved.write(buffer);
+        buffer.flip();
+        buffer.put(10, (byte) (buffer.get(10) ^ 1));
+
+        SavedGame loaded = new SavedGame();
+        loaded.turns = 99;
+        assertFalse(loaded.read(buffer));
+        assertEquals(99, loaded.turns);
+
+        buffer.limit(saved.size() - 1);
+        assertFalse(loaded.read(buffer));
+    }
+
+    @Test
+    public void applyTo_restoresTheGame() {
+        Game game = new Game(false);
+        game.newGame();
+        SavedGame saved = new SavedGame();
+        saved.board.fromBitBoard(BitBoard.setExponent(0, 2, 3, 11));
+        saved.turns = 900;
+        saved.gameState = Game.GAME_WIN;
+        saved.applyTo(game);
+
+        assertEquals(saved.board, game.getPackedBoard());
+        assertEquals(900, game.turns);
+        assertTrue(game.gameWon());
+        assertFalse(game.canUndo());
+    }
+
+    @Test
+    public void applyTo_resumesTheSameSpawns() {
+        Game game = new Game(false, new SplitMix64(3));
+        game.newGame();
+        SavedGame saved = new SavedGame();
+        saved.copyFrom(game);
+        int direction = BitBoard.canMove(game.getBoard(), 0) ? 0 : 2;
+        game.move(direction);
+
+        Game restored = new Game(false);
+        saved.applyTo(restored);
+        restored.move(direction);
+        assertEquals(game.getBoard(), restored.getBoard());
+    }
+}
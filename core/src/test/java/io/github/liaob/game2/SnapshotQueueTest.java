@@ -0,0 +1,105 @@
+package io.github.liaob.game2;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SnapshotQueueTest {
+
+    @Test
+    public void poll_returnsTheStatesInOrder() {
+        Game game = new Game(true, new SplitMix64(1));
+        game.newGame();
+        SnapshotQueue queue = new SnapshotQueue(3, 4, 4);
+        PackedBoard[] boards = new PackedBoard[2];
+        for (int i = 0; i < boards.length; i++) {
+            moveSomewhere(game);
+            boards[i] = new PackedBoard(4, 4);
+            boards[i].copyFrom(game.getPackedBoard());
+            queue.add(game);
+        }
+        assertEquals(2, queue.size());
+
+        GameSnapshot frame = new GameSnapshot(4, 4);
+        frame.version = 7;
+        assertTrue(queue.poll(frame));
+        assertEquals(boards[0], frame.board);
+        assertEquals(8, frame.version);
+        assertTrue(frame.aGrid.hasAnimations());
+        assertTrue(queue.poll(frame));
+        assertEquals(boards[1], frame.board);
+        assertEquals(9, frame.version);
+        assertFalse(queue.poll(frame));
+        assertEquals(9, frame.version);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void add_whenFull_fastForwardsTheOldest() {
+        Game game = new Game(true, new SplitMix64(2));
+        game.newGame();
+        SnapshotQueue queue = new SnapshotQueue(2, 4, 4);
+        PackedBoard[] boards = new PackedBoard[3];
+        for (int i = 0; i < boards.length; i++) {
+            moveSomewhere(game);
+            boards[i] = new PackedBoard(4, 4);
+            boards[i].copyFrom(game.getPackedBoard());
+            queue.add(game);
+        }
+        assertEquals(3, queue.size());
+
+        GameSnapshot frame = new GameSnapshot(4, 4);
+        for (int i = 0; i < boards.length; i++) {
+            assertTrue(queue.poll(frame));
+            assertEquals(boards[i], frame.board);
+            // Only the oldest skips its animations; the newest are kept
+            assertEquals(i > 0, frame.aGrid.hasAnimations());
+        }
+    }
+
+    @Test
+    public void add_whenTheSpareIsTaken_fastForwardsTheNextInstead() {
+        Game game = new Game(true, new SplitMix64(3));
+        game.newGame();
+        SnapshotQueue queue = new SnapshotQueue(2, 4, 4);
+        PackedBoard[] boards = new PackedBoard[4];
+        for (int i = 0; i < boards.length; i++) {
+            moveSomewhere(game);
+            boards[i] = new PackedBoard(4, 4);
+            boards[i].copyFrom(game.getPackedBoard());
+            queue.add(game);
+        }
+        assertEquals(3, queue.size());
+
+        GameSnapshot frame = new GameSnapshot(4, 4);
+        queue.poll(frame);
+        assertEquals(boards[1], frame.board);
+        assertFalse(frame.aGrid.hasAnimations());
+        queue.poll(frame);
+        assertEquals(boards[2], frame.board);
+        assertTrue(frame.aGrid.hasAnimations());
+        queue.poll(frame);
+        assertEquals(boards[3], frame.board);
+        assertTrue(frame.aGrid.hasAnimations());
+    }
+
+    @Test
+    public void clear_dropsEverything() {
+        Game game = new Game();
+        game.newGame();
+        SnapshotQueue queue = new SnapshotQueue(2, 4, 4);
+        queue.add(game);
+        queue.clear();
+        assertFalse(queue.poll(new GameSnapshot(4, 4)));
+    }
+
+    private static void moveSomewhere(Game game) {
+        for (int direction = 0; direction < 4; direction++) {
+            if (game.getPackedBoard().canMove(direction)) {
+                game.move(direction);
+                return;
+            }
+        }
+        fail("no move left");
+    }
+}
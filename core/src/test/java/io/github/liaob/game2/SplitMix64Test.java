@@ -0,0 +1,46 @@
+package io.github.liaob.game2;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SplitMix64Test {
+
+    @Test
+    public void nextLong_matchesTheReferenceSequence() {
+        SplitMix64 random = new SplitMix64(0);
+        assertEquals(0xe220a8397b1dcdafL, random.nextLong());
+        assertEquals(0x6e789e6aa1b965f4L, random.nextLong());
+    }
+
+    @Test
+    public void setState_repeatsTheStream() {
+        SplitMix64 random = new SplitMix64(2048);
+        random.nextLong();
+        long state = random.getState();
+        long expected = random.nextLong();
+        random.nextLong();
+        random.setState(state);
+        assertEquals(expected, random.nextLong());
+    }
+
+    @Test
+    public void nextInt_staysInBoundsAndCoversThem() {
+        SplitMix64 random = new SplitMix64(7);
+        int[] counts = new int[16];
+        for (int i = 0; i < 16000; i++) {
+            counts[random.nextInt(16)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 800 && count < 1200);
+        }
+    }
+
+    @Test
+    public void split_givesADifferentStream() {
+        SplitMix64 random = new SplitMix64(1);
+        SplitMix64 child = random.split();
+        assertNotEquals(random.getState(), child.getState());
+        assertNotEquals(random.nextLong(), child.nextLong());
+    }
+}
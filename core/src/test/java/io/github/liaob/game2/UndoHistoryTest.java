@@ -0,0 +1,84 @@
+package io.github.liaob.game2;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class UndoHistoryTest {
+
+    @Test
+    public void undoAndRedo_stepThroughRecordedStates() {
+        UndoHistory history = new UndoHistory(4);
+        history.reset(board(10), 0, Game.GAME_NORMAL);
+        history.record(board(11), 1, Game.GAME_NORMAL);
+        history.record(board(12), 2, Game.GAME_LOST);
+
+        assertTrue(history.undo());
+        assertEquals(11, boardOf(history));
+        assertEquals(1, history.getTurns());
+        assertTrue(history.undo());
+        assertEquals(10, boardOf(history));
+        assertFalse(history.undo());
+
+        assertTrue(history.redo());
+        assertTrue(history.redo());
+        assertEquals(12, boardOf(history));
+        assertEquals(Game.GAME_LOST, history.getGameState());
+        assertFalse(history.redo());
+    }
+
+    @Test
+    public void record_dropsTheRedoStates() {
+        UndoHistory history = new UndoHistory(4);
+        history.reset(board(10), 0, Game.GAME_NORMAL);
+        history.record(board(11), 1, Game.GAME_NORMAL);
+        history.undo();
+        history.record(board(21), 1, Game.GAME_NORMAL);
+
+        assertFalse(history.canRedo());
+        history.undo();
+        assertEquals(10, boardOf(history));
+    }
+
+    @Test
+    public void fullRing_overwritesTheOldestStates() {
+        UndoHistory history = new UndoHistory(3);
+        history.reset(board(0), 0, Game.GAME_NORMAL);
+        for (int turn = 1; turn <= 10; turn++) {
+            history.record(board(turn), turn, Game.GAME_NORMAL);
+        }
+        int levels = 0;
+        while (history.undo()) {
+            levels++;
+        }
+        assertEquals(3, levels);
+        assertEquals(7, boardOf(history));
+    }
+
+    @Test
+    public void largeBoards_keepEveryWord() {
+        PackedBoard board = new PackedBoard(8, 8);
+        board.setExponent(0, 1);
+        board.setExponent(63, 11);
+        UndoHistory history = new UndoHistory(2);
+        history.reset(board, 0, Game.GAME_NORMAL);
+        history.record(new PackedBoard(8, 8), 1, Game.GAME_NORMAL);
+        history.undo();
+
+        PackedBoard out = new PackedBoard(8, 8);
+        history.getBoard(out);
+        assertEquals(board, out);
+    }
+
+    private static PackedBoard board(long bits) {
+        PackedBoard board = new PackedBoard(4, 4);
+        board.fromBitBoard(bits);
+        return board;
+    }
+
+    private static long boardOf(UndoHistory history) {
+        PackedBoard out = new PackedBoard(4, 4);
+        history.getBoard(out);
+        return out.toBitBoard();
+    }
+}